@@ -0,0 +1,16 @@
+package com.kautiainen.antti.rpgs.dice.event;
+
+/**
+ * Backpressure policy determines which events are dropped when the buffer of a
+ * slow subscriber is full.
+ */
+public enum BackpressurePolicy {
+    /**
+     * Drop the new events, and keep the buffered events.
+     */
+    DROP,
+    /**
+     * Drop the oldest buffered events to keep the latest events.
+     */
+    LATEST;
+}
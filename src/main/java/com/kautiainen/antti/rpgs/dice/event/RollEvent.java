@@ -0,0 +1,141 @@
+package com.kautiainen.antti.rpgs.dice.event;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+
+/**
+ * Roll event is an event of rolling a die, rerolling a die result, or
+ * combining the results of a roll.
+ */
+public class RollEvent {
+
+    /**
+     * The types of the roll events.
+     */
+    public static enum Type {
+        /**
+         * A die was rolled.
+         */
+        ROLL,
+        /**
+         * A die result was rerolled.
+         */
+        REROLL,
+        /**
+         * The members of a roll result were combined into a value.
+         */
+        COMBINED;
+    }
+
+    /**
+     * The sequence number of the event within its publisher.
+     */
+    private final long sequence;
+
+    /**
+     * The time of the event.
+     */
+    private final Instant time;
+
+    /**
+     * The type of the event.
+     */
+    private final Type type;
+
+    /**
+     * The rolled die.
+     */
+    private final Die<?> die;
+
+    /**
+     * The value of the roll or the result.
+     */
+    private final Object value;
+
+    /**
+     * The member values of the combined result.
+     */
+    private final List<?> members;
+
+    /**
+     * Create a new roll event.
+     *
+     * @param sequence The sequence number of the event.
+     * @param time     The time of the event.
+     * @param type     The type of the event.
+     * @param die      The rolled die.
+     * @param value    The value of the roll or the result.
+     * @param members  The member values of the combined result.
+     */
+    public RollEvent(long sequence, Instant time, Type type, Die<?> die, Object value, List<?> members) {
+        this.sequence = sequence;
+        this.time = time;
+        this.type = type;
+        this.die = die;
+        this.value = value;
+        this.members = (members == null ? Collections.emptyList() : Collections.unmodifiableList(members));
+    }
+
+    /**
+     * Get the sequence number of the event.
+     *
+     * @return The sequence number of the event within its publisher.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Get the time of the event.
+     *
+     * @return The time of the event.
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Get the type of the event.
+     *
+     * @return The type of the event.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Get the rolled die.
+     *
+     * @return The rolled die.
+     */
+    public Die<?> getDie() {
+        return die;
+    }
+
+    /**
+     * Get the value.
+     *
+     * @return The value of the roll or the result.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Get the member values of a combined result.
+     *
+     * @return The unmodifiable list of the member values of a combined result, or
+     *         an empty list for other events.
+     */
+    public List<?> getMembers() {
+        return members;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("#%d %s %s=%s%s", sequence, type, die, value, members.isEmpty() ? "" : members);
+    }
+}
@@ -0,0 +1,585 @@
+package com.kautiainen.antti.rpgs.dice.event;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collector;
+
+import com.kautiainen.antti.rpgs.dice.model.Dice;
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.DieResult;
+import com.kautiainen.antti.rpgs.dice.model.RollResult;
+
+/**
+ * Roll event publisher publishes roll, reroll and combined result events to
+ * {@link Flow.Subscriber}s in batches.
+ *
+ * Every subscriber has a bounded buffer of its own. Publishing only appends the
+ * event to the buffers and never waits for the subscribers. When a buffer is
+ * full, the {@link BackpressurePolicy} of the subscriber determines whether the
+ * new or the oldest events are dropped. The buffered events are delivered by
+ * the executor of the publisher as lists of at most the batch size events, each
+ * list consuming one item of the requested demand.
+ */
+public class RollEventPublisher implements Flow.Publisher<List<RollEvent>>, AutoCloseable {
+
+    /**
+     * The default buffer capacity of a subscriber.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * The default maximal number of events in a batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    /**
+     * The subscription of a subscriber.
+     */
+    private final class EventSubscription implements Flow.Subscription {
+
+        /**
+         * The subscriber.
+         */
+        private final Flow.Subscriber<? super List<RollEvent>> subscriber;
+
+        /**
+         * The buffered events. The buffer is guarded by itself.
+         */
+        private final Deque<RollEvent> buffer;
+
+        /**
+         * The capacity of the buffer.
+         */
+        private final int capacity;
+
+        /**
+         * The backpressure policy of the subscriber.
+         */
+        private final BackpressurePolicy policy;
+
+        /**
+         * The number of batches requested, but not yet delivered.
+         */
+        private final AtomicLong demand = new AtomicLong();
+
+        /**
+         * The number of pending drain requests.
+         */
+        private final AtomicInteger pending = new AtomicInteger();
+
+        /**
+         * The number of dropped events.
+         */
+        private final AtomicLong dropped = new AtomicLong();
+
+        /**
+         * Has the subscriber been informed of the subscription. Only accessed by
+         * the drain loop.
+         */
+        private boolean started = false;
+
+        /**
+         * Has the subscription been cancelled.
+         */
+        private volatile boolean cancelled = false;
+
+        /**
+         * The error of an invalid request, or an undefined value.
+         */
+        private volatile Throwable error = null;
+
+        /**
+         * Create a new subscription.
+         *
+         * @param subscriber The subscriber.
+         * @param capacity   The buffer capacity.
+         * @param policy     The backpressure policy.
+         */
+        EventSubscription(Flow.Subscriber<? super List<RollEvent>> subscriber, int capacity,
+                BackpressurePolicy policy) {
+            this.subscriber = subscriber;
+            this.capacity = capacity;
+            this.policy = policy;
+            this.buffer = new ArrayDeque<>(Math.min(capacity, DEFAULT_CAPACITY));
+        }
+
+        /**
+         * Offer an event to the buffer.
+         *
+         * @param event The offered event.
+         */
+        void offer(RollEvent event) {
+            if (cancelled) {
+                return;
+            }
+            synchronized (buffer) {
+                if (buffer.size() >= capacity) {
+                    dropped.incrementAndGet();
+                    if (policy == BackpressurePolicy.DROP) {
+                        return;
+                    }
+                    buffer.pollFirst();
+                }
+                buffer.addLast(event);
+            }
+            signal();
+        }
+
+        /**
+         * Schedule the drain loop, unless it is already running.
+         */
+        void signal() {
+            if (pending.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this::drain);
+                } catch (RuntimeException e) {
+                    pending.set(0);
+                    cancel();
+                }
+            }
+        }
+
+        /**
+         * Deliver the buffered events to the subscriber. Only one thread at a time
+         * runs the drain loop.
+         */
+        private void drain() {
+            int missed = 1;
+            do {
+                if (!started) {
+                    started = true;
+                    try {
+                        subscriber.onSubscribe(this);
+                    } catch (Throwable e) {
+                        fail(e);
+                    }
+                }
+                while (!cancelled) {
+                    Throwable failure = error;
+                    if (failure != null) {
+                        fail(failure);
+                        break;
+                    }
+                    List<RollEvent> batch;
+                    boolean done;
+                    synchronized (buffer) {
+                        done = buffer.isEmpty() && closed;
+                        if (done || buffer.isEmpty() || demand.get() == 0) {
+                            batch = null;
+                        } else {
+                            batch = new ArrayList<>(Math.min(batchSize, buffer.size()));
+                            while (batch.size() < batchSize && !buffer.isEmpty()) {
+                                batch.add(buffer.pollFirst());
+                            }
+                        }
+                    }
+                    if (done) {
+                        cancelled = true;
+                        subscriptions.remove(this);
+                        try {
+                            subscriber.onComplete();
+                        } catch (Throwable e) {
+                            // The subscriber is already complete.
+                        }
+                        break;
+                    } else if (batch == null) {
+                        break;
+                    }
+                    demand.decrementAndGet();
+                    try {
+                        subscriber.onNext(batch);
+                    } catch (Throwable e) {
+                        fail(e);
+                    }
+                }
+                missed = pending.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Cancel the subscription due to an error, and inform the subscriber.
+         *
+         * @param failure The error.
+         */
+        private void fail(Throwable failure) {
+            if (!cancelled) {
+                cancel();
+                try {
+                    subscriber.onError(failure);
+                } catch (Throwable e) {
+                    // The subscriber is already failed.
+                }
+            }
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                error = new IllegalArgumentException("Non-positive request " + n);
+            } else {
+                demand.getAndAccumulate(n, (long current, long added) -> {
+                    long result = current + added;
+                    return result < 0 ? Long.MAX_VALUE : result;
+                });
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+            synchronized (buffer) {
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * The executor delivering the events.
+     */
+    private final Executor executor;
+
+    /**
+     * The default buffer capacity of the subscribers.
+     */
+    private final int capacity;
+
+    /**
+     * The maximal number of events in a batch.
+     */
+    private final int batchSize;
+
+    /**
+     * The default backpressure policy of the subscribers.
+     */
+    private final BackpressurePolicy policy;
+
+    /**
+     * The active subscriptions.
+     */
+    private final List<EventSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The sequence number of the next event.
+     */
+    private final AtomicLong sequence = new AtomicLong();
+
+    /**
+     * Is the publisher closed.
+     */
+    private volatile boolean closed = false;
+
+    /**
+     * Create a new roll event publisher.
+     *
+     * @param executor  The executor delivering the events.
+     * @param capacity  The default buffer capacity of the subscribers.
+     * @param batchSize The maximal number of events in a batch.
+     * @param policy    The default backpressure policy of the subscribers.
+     * @throws IllegalArgumentException The capacity or batch size was not
+     *                                  positive.
+     */
+    public RollEventPublisher(Executor executor, int capacity, int batchSize, BackpressurePolicy policy)
+            throws IllegalArgumentException {
+        if (capacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("The capacity and batch size must be positive");
+        }
+        this.executor = executor;
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+        this.policy = policy;
+    }
+
+    /**
+     * Create a new roll event publisher delivering the events with the common
+     * pool, and keeping the latest events of slow subscribers.
+     */
+    public RollEventPublisher() {
+        this(ForkJoinPool.commonPool(), DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, BackpressurePolicy.LATEST);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<RollEvent>> subscriber) {
+        subscribe(subscriber, capacity, policy);
+    }
+
+    /**
+     * Subscribe with a buffer capacity and backpressure policy of its own.
+     *
+     * @param subscriber The subscriber.
+     * @param capacity   The buffer capacity of the subscriber.
+     * @param policy     The backpressure policy of the subscriber.
+     * @throws IllegalArgumentException The capacity was not positive.
+     * @throws NullPointerException     The subscriber or policy was undefined.
+     */
+    public void subscribe(Flow.Subscriber<? super List<RollEvent>> subscriber, int capacity,
+            BackpressurePolicy policy) throws IllegalArgumentException, NullPointerException {
+        if (subscriber == null || policy == null) {
+            throw new NullPointerException("Undefined subscriber or policy");
+        } else if (capacity < 1) {
+            throw new IllegalArgumentException("The capacity must be positive");
+        }
+        EventSubscription subscription = new EventSubscription(subscriber, capacity, policy);
+        if (!closed) {
+            subscriptions.add(subscription);
+        }
+        subscription.signal();
+    }
+
+    /**
+     * Get the number of active subscribers.
+     *
+     * @return The number of active subscribers.
+     */
+    public int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * Get the number of events dropped due to the full buffers of the active
+     * subscribers.
+     *
+     * @return The number of dropped events.
+     */
+    public long getDroppedCount() {
+        return subscriptions.stream().mapToLong(subscription -> subscription.dropped.get()).sum();
+    }
+
+    /**
+     * Publish an event to all subscribers.
+     *
+     * @param type    The type of the event.
+     * @param die     The rolled die.
+     * @param value   The value of the event.
+     * @param members The member values of a combined result.
+     * @return The published event.
+     * @throws IllegalStateException The publisher is closed.
+     */
+    protected RollEvent publish(RollEvent.Type type, Die<?> die, Object value, List<?> members)
+            throws IllegalStateException {
+        RollEvent event = tryPublish(type, die, value, members);
+        if (event == null) {
+            throw new IllegalStateException("The publisher is closed");
+        }
+        return event;
+    }
+
+    /**
+     * Publish an event to all subscribers, unless the publisher is closed.
+     *
+     * @param type    The type of the event.
+     * @param die     The rolled die.
+     * @param value   The value of the event.
+     * @param members The member values of a combined result.
+     * @return The published event, or an undefined value, if the publisher is
+     *         closed and the event was dropped.
+     */
+    private RollEvent tryPublish(RollEvent.Type type, Die<?> die, Object value, List<?> members) {
+        if (closed) {
+            return null;
+        }
+        RollEvent event = new RollEvent(sequence.getAndIncrement(), Instant.now(), type, die, value, members);
+        for (EventSubscription subscription : subscriptions) {
+            subscription.offer(event);
+        }
+        return event;
+    }
+
+    /**
+     * Is the publisher closed.
+     *
+     * @return True, if and only if the publisher has been closed.
+     */
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Publish a roll.
+     *
+     * @param die   The rolled die.
+     * @param value The rolled value.
+     * @return The published event.
+     * @throws IllegalStateException The publisher is closed.
+     */
+    public RollEvent publishRoll(Die<?> die, Object value) throws IllegalStateException {
+        return publish(RollEvent.Type.ROLL, die, value, null);
+    }
+
+    /**
+     * Publish a reroll of a die result.
+     *
+     * @param result The rerolled result.
+     * @param value  The new value of the result.
+     * @return The published event.
+     * @throws IllegalStateException The publisher is closed.
+     */
+    public RollEvent publishReroll(DieResult<?> result, Object value) throws IllegalStateException {
+        return publish(RollEvent.Type.REROLL, result.getDie(), value, null);
+    }
+
+    /**
+     * Publish the current value of a roll result with its member values.
+     *
+     * @param result The roll result.
+     * @return The published event.
+     * @throws IllegalStateException The publisher is closed.
+     */
+    public RollEvent publishCombined(RollResult<?, ?> result) throws IllegalStateException {
+        return publish(RollEvent.Type.COMBINED, result.getDie(), result.getValue(), getMemberValues(result));
+    }
+
+    /**
+     * Get the member values of a roll result.
+     *
+     * @param result The roll result.
+     * @return The list of the current values of the members.
+     */
+    private static List<Object> getMemberValues(RollResult<?, ?> result) {
+        List<Object> members = new ArrayList<>(result.getMembers().size());
+        for (DieResult<?> member : result.getMembers()) {
+            members.add(member.getValue());
+        }
+        return members;
+    }
+
+    /**
+     * Publish the current value of an observed roll result, unless the publisher
+     * is closed.
+     *
+     * @param result The observed roll result.
+     */
+    private void observeCombined(RollResult<?, ?> result) {
+        if (!closed) {
+            tryPublish(RollEvent.Type.COMBINED, result.getDie(), result.getValue(), getMemberValues(result));
+        }
+    }
+
+    /**
+     * Create a die publishing its rolls. After the publisher is closed, the die
+     * keeps rolling, and its events are dropped.
+     *
+     * @param <T> The value type of the die.
+     * @param die The observed die.
+     * @return The die publishing every roll of the observed die.
+     */
+    public <T> Die<T> observe(Die<T> die) {
+        return new Die<T>() {
+
+            @Override
+            public T roll() {
+                T result = die.roll();
+                tryPublish(RollEvent.Type.ROLL, die, result, null);
+                return result;
+            }
+
+            @Override
+            public String toString() {
+                return die.toString();
+            }
+        };
+    }
+
+    /**
+     * Create a die result publishing its rerolls. After the publisher is closed,
+     * the result keeps rerolling, and its events are dropped.
+     *
+     * @param <T>    The value type of the result.
+     * @param result The observed result.
+     * @return The die result publishing every reroll of the observed result.
+     */
+    public <T> DieResult<T> observe(DieResult<T> result) {
+        return new DieResult<T>() {
+
+            @Override
+            public T getValue() {
+                return result.getValue();
+            }
+
+            @Override
+            public T reroll() throws UnsupportedOperationException {
+                T value = result.reroll();
+                tryPublish(RollEvent.Type.REROLL, result.getDie(), value, null);
+                return value;
+            }
+
+            @Override
+            public Die<? extends T> getDie() {
+                return result.getDie();
+            }
+        };
+    }
+
+    /**
+     * Create a roll result publishing its current value, and the new value after
+     * every reroll. After the publisher is closed, the result keeps rerolling,
+     * and its events are dropped.
+     *
+     * @param <T>    The value type of the members.
+     * @param <V>    The value type of the result.
+     * @param result The observed result.
+     * @return The roll result publishing the combined values of the observed
+     *         result.
+     */
+    public <T, V> RollResult<T, V> observe(RollResult<T, V> result) {
+        observeCombined(result);
+        return new RollResult<T, V>() {
+
+            @Override
+            public Dice<T> getDice() {
+                return result.getDice();
+            }
+
+            @Override
+            public List<DieResult<T>> getMembers() {
+                return result.getMembers();
+            }
+
+            @Override
+            public Collector<? super T, ?, ? extends V> getCombiner() {
+                return result.getCombiner();
+            }
+
+            @Override
+            public V getValue() {
+                return result.getValue();
+            }
+
+            @Override
+            public V reroll() throws UnsupportedOperationException {
+                V value = result.reroll();
+                observeCombined(result);
+                return value;
+            }
+
+            @Override
+            public Die<? extends V> getDie() {
+                return result.getDie();
+            }
+        };
+    }
+
+    /**
+     * Close the publisher. The subscribers are completed after the buffered
+     * events have been delivered.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        Collection<EventSubscription> active = new ArrayList<>(subscriptions);
+        for (EventSubscription subscription : active) {
+            subscription.signal();
+        }
+    }
+}
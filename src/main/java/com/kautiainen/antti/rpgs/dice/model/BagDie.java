@@ -0,0 +1,306 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collector;
+
+/**
+ * A bag die draws items from a bag or a deck without replacement.
+ *
+ * The bag keeps its items in an array, whose head contains the remaining items
+ * and tail the drawn items. A draw swaps a random remaining item with the last
+ * remaining item and shrinks the head by one, which is a single step of the
+ * Fisher-Yates shuffle. As every draw chooses uniformly among the remaining
+ * items, returning the drawn items only resets the size of the head.
+ *
+ * Rolling the die draws an item. A rerollable result of the bag draws a new
+ * item on reroll without returning the previous item into the bag.
+ *
+ * @param <E> The item type.
+ */
+public class BagDie<E> implements Die<E> {
+
+    /**
+     * The items of the bag. The items before {@link #remaining} are in the bag,
+     * and the others have been drawn in the reverse order of the draws.
+     */
+    private final E[] items;
+
+    /**
+     * The number of remaining items.
+     */
+    private int remaining;
+
+    /**
+     * The random source of the draws.
+     */
+    private final RandomGenerator random;
+
+    /**
+     * The lock of the concurrent draws, or an undefined value, if the bag is not
+     * thread safe.
+     */
+    private final ReentrantLock lock;
+
+    /**
+     * Create a new bag.
+     *
+     * @param contents   The items of the bag.
+     * @param random     The random source of the draws.
+     * @param concurrent Does the bag support concurrent draws.
+     */
+    @SuppressWarnings("unchecked")
+    public BagDie(Collection<? extends E> contents, RandomGenerator random, boolean concurrent) {
+        this.items = (E[]) contents.toArray();
+        this.remaining = items.length;
+        this.random = random;
+        this.lock = (concurrent ? new ReentrantLock() : null);
+    }
+
+    /**
+     * Create a new bag without concurrent draws.
+     *
+     * @param contents The items of the bag.
+     */
+    public BagDie(Collection<? extends E> contents) {
+        this(contents, new SplittableRandom(), false);
+    }
+
+    /**
+     * Create a new bag supporting concurrent draws.
+     *
+     * @param <E>      The item type.
+     * @param contents The items of the bag.
+     * @return The thread safe bag.
+     */
+    public static <E> BagDie<E> concurrent(Collection<? extends E> contents) {
+        return new BagDie<>(contents, new SplittableRandom(), true);
+    }
+
+    /**
+     * Acquire the lock of a concurrent bag.
+     */
+    private void lock() {
+        if (lock != null) {
+            lock.lock();
+        }
+    }
+
+    /**
+     * Release the lock of a concurrent bag.
+     */
+    private void unlock() {
+        if (lock != null) {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Is the bag thread safe.
+     *
+     * @return True, if and only if the bag supports concurrent draws.
+     */
+    public boolean isConcurrent() {
+        return lock != null;
+    }
+
+    /**
+     * Draw an item without locking.
+     *
+     * @return The drawn item.
+     * @throws NoSuchElementException The bag is empty.
+     */
+    private E drawUnlocked() throws NoSuchElementException {
+        if (remaining == 0) {
+            throw new NoSuchElementException("The bag is empty");
+        }
+        int index = random.nextInt(remaining);
+        remaining--;
+        E result = items[index];
+        items[index] = items[remaining];
+        items[remaining] = result;
+        return result;
+    }
+
+    /**
+     * Draw an item from the bag.
+     *
+     * @return The drawn item.
+     * @throws NoSuchElementException The bag is empty.
+     */
+    public E draw() throws NoSuchElementException {
+        lock();
+        try {
+            return drawUnlocked();
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Draw several items from the bag at once.
+     *
+     * @param count The number of drawn items.
+     * @return The list of the drawn items in the order of the draws.
+     * @throws IllegalArgumentException The count was negative.
+     * @throws NoSuchElementException   The bag does not have enough items. No item
+     *                                  is drawn.
+     */
+    public List<E> draw(int count) throws IllegalArgumentException, NoSuchElementException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative count");
+        }
+        lock();
+        try {
+            if (count > remaining) {
+                throw new NoSuchElementException("The bag does not have enough items");
+            }
+            List<E> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(drawUnlocked());
+            }
+            return result;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Draw items into a roll result.
+     *
+     * @param <V>      The value type of the result.
+     * @param count    The number of drawn items.
+     * @param combiner The combiner of the drawn items.
+     * @return The roll result whose members are the drawn items.
+     * @throws IllegalArgumentException The count was negative.
+     * @throws NoSuchElementException   The bag does not have enough items. No item
+     *                                  is drawn.
+     */
+    public <V> RollResult<E, V> drawResult(int count, Collector<? super E, ?, ? extends V> combiner)
+            throws IllegalArgumentException, NoSuchElementException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative count");
+        }
+        lock();
+        try {
+            if (count > remaining) {
+                throw new NoSuchElementException("The bag does not have enough items");
+            }
+            return RollResult.of(Collections.<Die<? extends E>>nCopies(count, this), combiner);
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Draw an item from the bag.
+     *
+     * @return The drawn item.
+     * @throws NoSuchElementException The bag is empty.
+     */
+    @Override
+    public E roll() throws NoSuchElementException {
+        return draw();
+    }
+
+    /**
+     * Return all drawn items into the bag.
+     */
+    public void reset() {
+        lock();
+        try {
+            remaining = items.length;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Return all drawn items into the bag, and shuffle the bag. As the draws
+     * choose uniformly among the remaining items, the bag never needs reordering.
+     */
+    public void reshuffle() {
+        reset();
+    }
+
+    /**
+     * Get the number of items of the full bag.
+     *
+     * @return The number of items of the bag.
+     */
+    public int size() {
+        return items.length;
+    }
+
+    /**
+     * Get the number of remaining items.
+     *
+     * @return The number of items in the bag.
+     */
+    public int getRemaining() {
+        lock();
+        try {
+            return remaining;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Is the bag empty.
+     *
+     * @return True, if and only if all items have been drawn.
+     */
+    public boolean isEmpty() {
+        return getRemaining() == 0;
+    }
+
+    /**
+     * Get the drawn items.
+     *
+     * @return The list of the items drawn since the last reset in the order of
+     *         the draws.
+     */
+    public List<E> getDrawn() {
+        lock();
+        try {
+            List<E> result = new ArrayList<>(items.length - remaining);
+            for (int i = items.length - 1; i >= remaining; i--) {
+                result.add(items[i]);
+            }
+            return result;
+        } finally {
+            unlock();
+        }
+    }
+
+    /**
+     * Get the remaining items.
+     *
+     * @return The unmodifiable snapshot of the items in the bag in no particular
+     *         order.
+     */
+    public List<E> getContents() {
+        lock();
+        try {
+            List<E> snapshot = new ArrayList<>(remaining);
+            for (int i = 0; i < remaining; i++) {
+                snapshot.add(items[i]);
+            }
+            return Collections.unmodifiableList(snapshot);
+        } finally {
+            unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("bag[%d/%d]", getRemaining(), items.length);
+    }
+}
@@ -0,0 +1,397 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collector;
+
+/**
+ * Compact roll result is a roll result of a large pool of indexed dice.
+ *
+ * Instead of a die result object per die, the compact result stores the
+ * rolled side indices in a primitive array, and the die of each position as
+ * an index to a small table of the distinct dice. The member die results are
+ * lightweight views created on demand, and reading or rerolling through them
+ * operates on the shared arrays.
+ *
+ * @param <T> The value type of the pooled dice.
+ * @param <V> The value type of the combined result.
+ */
+public class CompactRollResult<T, V> implements RollResult<T, V> {
+
+    /**
+     * The table of the distinct dice of the pool.
+     */
+    private final IndexedDie<? extends T>[] dieTable;
+
+    /**
+     * The index of the die table entry of each position, or an undefined value
+     * if all positions share the only die of the table.
+     */
+    private final char[] dieIndices;
+
+    /**
+     * The rolled side index of each position.
+     */
+    private final int[] sides;
+
+    /**
+     * The combiner of the values.
+     */
+    private final Collector<? super T, ?, ? extends V> combiner;
+
+    /**
+     * Is the result rerollable.
+     */
+    private final boolean rerollable;
+
+    /**
+     * The random source of the rolls.
+     */
+    private final RandomGenerator random;
+
+    /**
+     * The lazily created combined die of the result.
+     */
+    private CombinedDie<T, V> combinedDie = null;
+
+    /**
+     * A member of the compact result. The member is a flyweight view of a position
+     * of the result.
+     */
+    private final class Member implements DieResult<T> {
+
+        /**
+         * The position of the member.
+         */
+        private final int index;
+
+        /**
+         * Create a new member view.
+         *
+         * @param index The position of the member.
+         */
+        Member(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public T getValue() {
+            return CompactRollResult.this.getValue(index);
+        }
+
+        @Override
+        public T reroll() throws UnsupportedOperationException {
+            return rerollPosition(index);
+        }
+
+        @Override
+        public Die<? extends T> getDie() {
+            return CompactRollResult.this.getDie(index);
+        }
+    }
+
+    /**
+     * The list view of the members.
+     */
+    private final class MemberList extends AbstractList<DieResult<T>> implements RandomAccess {
+
+        @Override
+        public DieResult<T> get(int index) {
+            if (index < 0 || index >= sides.length) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return new Member(index);
+        }
+
+        @Override
+        public int size() {
+            return sides.length;
+        }
+    }
+
+    /**
+     * Create a new compact result by rolling the given dice.
+     *
+     * @param dice       The rolled dice.
+     * @param combiner   The combiner of the rolled values.
+     * @param rerollable Is the result rerollable.
+     * @param random     The random source of the rolls.
+     * @throws IllegalArgumentException There were more than 65536 distinct dice.
+     */
+    @SuppressWarnings("unchecked")
+    public CompactRollResult(Collection<? extends IndexedDie<? extends T>> dice,
+            Collector<? super T, ?, ? extends V> combiner, boolean rerollable, RandomGenerator random)
+            throws IllegalArgumentException {
+        this.combiner = combiner;
+        this.rerollable = rerollable;
+        this.random = random;
+        this.sides = new int[dice.size()];
+        Map<IndexedDie<? extends T>, Integer> tableIndices = new IdentityHashMap<>();
+        List<IndexedDie<? extends T>> table = new ArrayList<>();
+        char[] indices = new char[dice.size()];
+        int position = 0;
+        for (IndexedDie<? extends T> die : dice) {
+            Integer tableIndex = tableIndices.get(die);
+            if (tableIndex == null) {
+                if (table.size() > Character.MAX_VALUE) {
+                    throw new IllegalArgumentException("Too many distinct dice");
+                }
+                tableIndex = table.size();
+                tableIndices.put(die, tableIndex);
+                table.add(die);
+            }
+            indices[position] = (char) tableIndex.intValue();
+            sides[position] = die.rollIndex(random);
+            position++;
+        }
+        this.dieTable = (IndexedDie<? extends T>[]) table.toArray(new IndexedDie<?>[table.size()]);
+        this.dieIndices = (table.size() > 1 ? indices : null);
+    }
+
+    /**
+     * Create a new compact result by rolling the given dice with a random source
+     * of its own.
+     *
+     * @param dice       The rolled dice.
+     * @param combiner   The combiner of the rolled values.
+     * @param rerollable Is the result rerollable.
+     * @throws IllegalArgumentException There were more than 65536 distinct dice.
+     */
+    public CompactRollResult(Collection<? extends IndexedDie<? extends T>> dice,
+            Collector<? super T, ?, ? extends V> combiner, boolean rerollable) throws IllegalArgumentException {
+        this(dice, combiner, rerollable, new SplittableRandom());
+    }
+
+    /**
+     * Create a new compact result of a pool of identical dice.
+     *
+     * @param <T>        The value type of the die.
+     * @param <V>        The value type of the combined result.
+     * @param die        The rolled die.
+     * @param count      The number of rolled dice.
+     * @param combiner   The combiner of the rolled values.
+     * @param rerollable Is the result rerollable.
+     * @return The compact result of the pool.
+     * @throws IllegalArgumentException The count was negative.
+     */
+    public static <T, V> CompactRollResult<T, V> of(IndexedDie<? extends T> die, int count,
+            Collector<? super T, ?, ? extends V> combiner, boolean rerollable) throws IllegalArgumentException {
+        if (count < 0) {
+            throw new IllegalArgumentException("Negative die count");
+        }
+        return new CompactRollResult<>(Collections.<IndexedDie<? extends T>>nCopies(count, die), combiner,
+                rerollable);
+    }
+
+    /**
+     * Get the number of dice in the result.
+     *
+     * @return The number of rolled dice.
+     */
+    public int size() {
+        return sides.length;
+    }
+
+    /**
+     * Get the die of a position.
+     *
+     * @param index The position.
+     * @return The die rolled at the position.
+     * @throws IndexOutOfBoundsException The position was invalid.
+     */
+    public IndexedDie<? extends T> getDie(int index) throws IndexOutOfBoundsException {
+        if (dieIndices == null) {
+            checkIndex(index);
+            return dieTable[0];
+        }
+        return dieTable[dieIndices[index]];
+    }
+
+    /**
+     * Get the rolled side index of a position.
+     *
+     * @param index The position.
+     * @return The index of the rolled side of the die at the position.
+     * @throws IndexOutOfBoundsException The position was invalid.
+     */
+    public synchronized int getSideIndex(int index) throws IndexOutOfBoundsException {
+        return sides[index];
+    }
+
+    /**
+     * Get the value of a position.
+     *
+     * @param index The position.
+     * @return The rolled value of the die at the position.
+     * @throws IndexOutOfBoundsException The position was invalid.
+     */
+    public T getValue(int index) throws IndexOutOfBoundsException {
+        return getDie(index).getSide(getSideIndex(index));
+    }
+
+    /**
+     * Check the position is valid.
+     *
+     * @param index The position.
+     * @return The valid position.
+     * @throws IndexOutOfBoundsException The position was invalid.
+     */
+    private int checkIndex(int index) throws IndexOutOfBoundsException {
+        if (index < 0 || index >= sides.length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return index;
+    }
+
+    /**
+     * Check the result is rerollable.
+     *
+     * @throws UnsupportedOperationException The result is not rerollable.
+     */
+    private void checkRerollable() throws UnsupportedOperationException {
+        if (!rerollable) {
+            throw new UnsupportedOperationException("Rerolling not supported");
+        }
+    }
+
+    /**
+     * Reroll the dice of the given positions in place.
+     *
+     * @param indices The rerolled positions.
+     * @return The new value of the result.
+     * @throws IndexOutOfBoundsException     Any position was invalid.
+     * @throws UnsupportedOperationException The result is not rerollable.
+     */
+    public V reroll(int... indices) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        checkRerollable();
+        synchronized (this) {
+            for (int index : indices) {
+                checkIndex(index);
+            }
+            for (int index : indices) {
+                sides[index] = getDie(index).rollIndex(random);
+            }
+        }
+        return getValue();
+    }
+
+    /**
+     * Reroll the die of a single position in place without combining the result.
+     *
+     * @param index The rerolled position.
+     * @return The new value of the position.
+     * @throws IndexOutOfBoundsException     The position was invalid.
+     * @throws UnsupportedOperationException The result is not rerollable.
+     */
+    private T rerollPosition(int index) throws IndexOutOfBoundsException, UnsupportedOperationException {
+        checkRerollable();
+        synchronized (this) {
+            IndexedDie<? extends T> die = getDie(checkIndex(index));
+            sides[index] = die.rollIndex(random);
+            return die.getSide(sides[index]);
+        }
+    }
+
+    /**
+     * Reroll the dice whose value fulfils the given predicate in place.
+     *
+     * @param predicate The predicate selecting the rerolled dice.
+     * @return The new value of the result.
+     * @throws UnsupportedOperationException The result is not rerollable.
+     */
+    public V rerollIf(Predicate<? super T> predicate) throws UnsupportedOperationException {
+        checkRerollable();
+        synchronized (this) {
+            for (int index = 0; index < sides.length; index++) {
+                IndexedDie<? extends T> die = getDie(index);
+                if (predicate.test(die.getSide(sides[index]))) {
+                    sides[index] = die.rollIndex(random);
+                }
+            }
+        }
+        return getValue();
+    }
+
+    @Override
+    public V reroll() throws UnsupportedOperationException {
+        checkRerollable();
+        synchronized (this) {
+            for (int index = 0; index < sides.length; index++) {
+                sides[index] = getDie(index).rollIndex(random);
+            }
+        }
+        return getValue();
+    }
+
+    @Override
+    public synchronized V getValue() {
+        return collect(combiner);
+    }
+
+    /**
+     * Collect the values of the result without creating the member views.
+     *
+     * @param <A>       The accumulator type of the collector.
+     * @param <R>       The result type of the collector.
+     * @param collector The collector of the values.
+     * @return The collected result.
+     */
+    public synchronized <A, R> R collect(Collector<? super T, A, R> collector) {
+        A container = collector.supplier().get();
+        BiConsumer<A, ? super T> accumulator = collector.accumulator();
+        for (int index = 0; index < sides.length; index++) {
+            accumulator.accept(container, getValue(index));
+        }
+        return collector.finisher().apply(container);
+    }
+
+    @Override
+    public synchronized Die<? extends V> getDie() {
+        if (combinedDie == null) {
+            combinedDie = new CombinedDie<>(getDice(), combiner);
+        }
+        return combinedDie;
+    }
+
+    @Override
+    public Dice<T> getDice() {
+        return new Dice<>() {
+
+            @Override
+            public List<Die<? extends T>> getDice() {
+                return new AbstractList<>() {
+
+                    @Override
+                    public Die<? extends T> get(int index) {
+                        return CompactRollResult.this.getDie(index);
+                    }
+
+                    @Override
+                    public int size() {
+                        return sides.length;
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public List<DieResult<T>> getMembers() {
+        return new MemberList();
+    }
+
+    @Override
+    public Collector<? super T, ?, ? extends V> getCombiner() {
+        return combiner;
+    }
+}
@@ -42,7 +42,7 @@ public interface Die<VALUE> {
      */
     public static <TYPE> Die<TYPE> of(List<TYPE> sides) {
 
-        return () -> sides.get((int) Math.floor(Math.random() * (sides.size())));
+        return new SimpleDie<>(sides);
     }
 
     /**
@@ -0,0 +1,77 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.random.RandomGenerator;
+
+/**
+ * An indexed die is a die with a known list of equally likely sides.
+ *
+ * The indexed die may be rolled with a given random source, which allows
+ * choosing the random number generator of the rolls.
+ *
+ * @param <VALUE> The value type of the sides.
+ */
+public interface IndexedDie<VALUE> extends Die<VALUE> {
+
+    /**
+     * Get the number of sides.
+     *
+     * @return The number of sides of the die.
+     */
+    public int getSideCount();
+
+    /**
+     * Get a side of the die.
+     *
+     * @param index The index of the side.
+     * @return The value of the side.
+     * @throws IndexOutOfBoundsException The index was not a valid side index.
+     */
+    public VALUE getSide(int index) throws IndexOutOfBoundsException;
+
+    /**
+     * Get the sides of the die.
+     *
+     * @return The unmodifiable list of the sides of the die.
+     */
+    default List<VALUE> getSides() {
+        return new AbstractList<>() {
+
+            @Override
+            public VALUE get(int index) {
+                return getSide(index);
+            }
+
+            @Override
+            public int size() {
+                return getSideCount();
+            }
+        };
+    }
+
+    /**
+     * Roll the index of a side with given random source.
+     *
+     * @param random The random source of the roll.
+     * @return The index of the rolled side.
+     */
+    default int rollIndex(RandomGenerator random) {
+        return random.nextInt(getSideCount());
+    }
+
+    /**
+     * Roll the die with given random source.
+     *
+     * @param random The random source of the roll.
+     * @return The value of the rolled side.
+     */
+    default VALUE roll(RandomGenerator random) {
+        return getSide(rollIndex(random));
+    }
+
+    @Override
+    default VALUE roll() {
+        return getSide((int) Math.floor(Math.random() * getSideCount()));
+    }
+}
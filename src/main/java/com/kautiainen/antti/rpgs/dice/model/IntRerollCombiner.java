@@ -0,0 +1,100 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Int reroll combiner is a reroll combiner of primitive integer rolls.
+ */
+@FunctionalInterface
+public interface IntRerollCombiner extends RerollCombiner<Integer> {
+
+    /**
+     * Combine the current value with a new roll.
+     *
+     * @param current The current value.
+     * @param rolled  The rolled value.
+     * @return The combined value.
+     */
+    public int applyAsInt(int current, int rolled);
+
+    @Override
+    default Integer apply(Integer current, Integer rolled) {
+        if (current == null) {
+            return rolled;
+        } else if (rolled == null) {
+            return current;
+        } else {
+            return applyAsInt(current, rolled);
+        }
+    }
+
+    /**
+     * Combine an array of rolls.
+     *
+     * @param rolls The rolls.
+     * @return The combination of the rolls.
+     * @throws IllegalArgumentException The rolls were empty.
+     */
+    default int applyAsInt(int... rolls) throws IllegalArgumentException {
+        if (rolls.length == 0) {
+            throw new IllegalArgumentException("No rolls");
+        }
+        int result = rolls[0];
+        for (int i = 1; i < rolls.length; i++) {
+            result = applyAsInt(result, rolls[i]);
+        }
+        return result;
+    }
+
+    @Override
+    default Function<List<? extends Integer>, ? extends Integer> asFunction() {
+        return new ListFunction<>(this, (List<? extends Integer> list) -> {
+            boolean empty = true;
+            int result = 0;
+            for (Integer value : list) {
+                if (value != null) {
+                    result = (empty ? value : applyAsInt(result, value));
+                    empty = false;
+                }
+            }
+            return empty ? null : result;
+        });
+    }
+
+    /**
+     * Create a combiner keeping the largest roll.
+     *
+     * @return The combiner returning the larger value.
+     */
+    static IntRerollCombiner max() {
+        return Math::max;
+    }
+
+    /**
+     * Create a combiner keeping the smallest roll.
+     *
+     * @return The combiner returning the smaller value.
+     */
+    static IntRerollCombiner min() {
+        return Math::min;
+    }
+
+    /**
+     * Create a combiner summing the rolls.
+     *
+     * @return The combiner returning the sum of the values.
+     */
+    static IntRerollCombiner sum() {
+        return Integer::sum;
+    }
+
+    /**
+     * Create a combiner keeping the most recent roll.
+     *
+     * @return The combiner returning the rolled value.
+     */
+    static IntRerollCombiner latest() {
+        return (int current, int rolled) -> rolled;
+    }
+}
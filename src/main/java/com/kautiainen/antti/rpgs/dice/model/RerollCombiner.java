@@ -0,0 +1,147 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+
+/**
+ * Reroll combiner combines the current value of a rerolled result with a new
+ * roll in constant time.
+ *
+ * The combiner is applied as apply(current, rolled). An undefined value is
+ * treated as a missing value, so the combination of a missing value and a value
+ * is the value. The combiners are associative, so they may also be used to
+ * reduce a list of rolls in any grouping.
+ *
+ * @param <T> The value type of the rolls.
+ */
+@FunctionalInterface
+public interface RerollCombiner<T> extends BinaryOperator<T> {
+
+    /**
+     * Create a function combining a list of rolls with the combiner.
+     *
+     * @return The function returning the combination of the rolls, or an
+     *         undefined value for an empty list. The function is a
+     *         {@link ListFunction}, so a rerolled result given the function
+     *         uses the combiner on reroll.
+     */
+    default Function<List<? extends T>, ? extends T> asFunction() {
+        return new ListFunction<>(this, (List<? extends T> list) -> {
+            T result = null;
+            for (T value : list) {
+                result = (result == null ? value : (value == null ? result : apply(result, value)));
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Create a combiner keeping the most recent roll.
+     *
+     * @param <T> The value type of the rolls.
+     * @return The combiner returning the rolled value.
+     */
+    static <T> RerollCombiner<T> last() {
+        return (T current, T rolled) -> rolled;
+    }
+
+    /**
+     * Create a combiner keeping the first roll.
+     *
+     * @param <T> The value type of the rolls.
+     * @return The combiner returning the current value.
+     */
+    static <T> RerollCombiner<T> first() {
+        return (T current, T rolled) -> current;
+    }
+
+    /**
+     * Create a combiner keeping the best roll.
+     *
+     * @param <T>        The value type of the rolls.
+     * @param comparator The comparator of the rolls.
+     * @return The combiner returning the greater value. On a tie, the current
+     *         value is kept.
+     */
+    static <T> RerollCombiner<T> bestOf(Comparator<? super T> comparator) {
+        return (T current, T rolled) -> {
+            if (current == null) {
+                return rolled;
+            } else if (rolled == null) {
+                return current;
+            } else {
+                return comparator.compare(current, rolled) < 0 ? rolled : current;
+            }
+        };
+    }
+
+    /**
+     * Create a combiner keeping the worst roll.
+     *
+     * @param <T>        The value type of the rolls.
+     * @param comparator The comparator of the rolls.
+     * @return The combiner returning the lesser value. On a tie, the current
+     *         value is kept.
+     */
+    static <T> RerollCombiner<T> worstOf(Comparator<? super T> comparator) {
+        return (T current, T rolled) -> {
+            if (current == null) {
+                return rolled;
+            } else if (rolled == null) {
+                return current;
+            } else {
+                return comparator.compare(current, rolled) > 0 ? rolled : current;
+            }
+        };
+    }
+
+    /**
+     * List function is a function of a list of rolls backed by a reroll
+     * combiner. The rerolled results detect the list functions, and update
+     * their value with the combiner instead of applying the function to the
+     * whole history.
+     *
+     * @param <T> The value type of the rolls.
+     */
+    public static final class ListFunction<T> implements Function<List<? extends T>, T> {
+
+        /**
+         * The combiner of the rolls.
+         */
+        private final RerollCombiner<T> combiner;
+
+        /**
+         * The function combining a list of rolls.
+         */
+        private final Function<List<? extends T>, ? extends T> function;
+
+        /**
+         * Create a new list function.
+         *
+         * @param combiner The combiner of the rolls.
+         * @param function The function combining a list of rolls with the
+         *                 combiner.
+         */
+        public ListFunction(RerollCombiner<T> combiner, Function<List<? extends T>, ? extends T> function) {
+            this.combiner = Objects.requireNonNull(combiner);
+            this.function = Objects.requireNonNull(function);
+        }
+
+        /**
+         * Get the combiner of the function.
+         *
+         * @return The combiner of the rolls.
+         */
+        public RerollCombiner<T> getCombiner() {
+            return combiner;
+        }
+
+        @Override
+        public T apply(List<? extends T> list) {
+            return function.apply(list);
+        }
+    }
+}
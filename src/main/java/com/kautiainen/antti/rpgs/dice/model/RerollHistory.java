@@ -0,0 +1,370 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+/**
+ * Reroll history stores the rolls of a rerolled result.
+ *
+ * The history policy determines how many rolls are kept: all rolls, the most
+ * recent rolls, or only a summary of the rolls. A history not keeping all rolls
+ * is bounded, and uses constant memory regardless of the number of rerolls.
+ *
+ * @param <T> The value type of the rolls.
+ */
+public interface RerollHistory<T> {
+
+    /**
+     * Add a roll to the history.
+     *
+     * @param value The rolled value.
+     */
+    public void add(T value);
+
+    /**
+     * Remove all rolls from the history.
+     */
+    public void clear();
+
+    /**
+     * Get the number of rolls added to the history since the last clear.
+     *
+     * @return The number of rolls.
+     */
+    public long getCount();
+
+    /**
+     * Get the retained rolls.
+     *
+     * @return The unmodifiable list of the retained rolls from the oldest to the
+     *         most recent roll. The list may be a live view of the history.
+     */
+    public List<T> getValues();
+
+    /**
+     * Get a snapshot of the retained rolls.
+     *
+     * @return The unmodifiable copy of the retained rolls from the oldest to the
+     *         most recent roll.
+     */
+    default List<T> getSnapshot() {
+        return Collections.unmodifiableList(new ArrayList<>(getValues()));
+    }
+
+    /**
+     * Does the history keep all rolls.
+     *
+     * @return True, if and only if the retained rolls are all rolls of the
+     *         history.
+     */
+    default boolean isComplete() {
+        return getValues().size() == getCount();
+    }
+
+    /**
+     * Does the history use bounded memory.
+     *
+     * @return True, if and only if the history does not keep all rolls.
+     */
+    public boolean isBounded();
+
+    /**
+     * Create a history keeping all rolls.
+     *
+     * @param <T> The value type of the rolls.
+     * @return The unbounded history.
+     */
+    static <T> RerollHistory<T> keepAll() {
+        return new KeepAll<>();
+    }
+
+    /**
+     * Create a history keeping the most recent rolls.
+     *
+     * @param <T>      The value type of the rolls.
+     * @param capacity The number of kept rolls.
+     * @return The history keeping at most capacity rolls.
+     * @throws IllegalArgumentException The capacity was not positive.
+     */
+    static <T> RerollHistory<T> keepLast(int capacity) throws IllegalArgumentException {
+        return new KeepLast<>(capacity);
+    }
+
+    /**
+     * Create a history keeping only the summary of the rolls.
+     *
+     * @param <T>        The value type of the rolls.
+     * @param comparator The comparator determining the minimum and maximum.
+     * @param summand    The function converting a roll to a summand, or an
+     *                   undefined value, if the history does not sum the rolls.
+     * @return The summary history.
+     */
+    static <T> Summary<T> summary(Comparator<? super T> comparator, ToLongFunction<? super T> summand) {
+        return new Summary<>(comparator, summand);
+    }
+
+    /**
+     * Create a history keeping only the summary of integer rolls.
+     *
+     * @return The summary history of integer rolls.
+     */
+    static Summary<Integer> intSummary() {
+        return new Summary<>(Comparator.naturalOrder(), Integer::longValue);
+    }
+
+    /**
+     * History keeping all rolls in a list.
+     *
+     * @param <T> The value type of the rolls.
+     */
+    public static final class KeepAll<T> implements RerollHistory<T> {
+
+        /**
+         * The rolls.
+         */
+        private final List<T> values = new ArrayList<>(1);
+
+        @Override
+        public void add(T value) {
+            values.add(value);
+        }
+
+        @Override
+        public void clear() {
+            values.clear();
+        }
+
+        @Override
+        public long getCount() {
+            return values.size();
+        }
+
+        /**
+         * Get the retained rolls.
+         *
+         * @return The unmodifiable live view of all rolls.
+         */
+        @Override
+        public List<T> getValues() {
+            return Collections.unmodifiableList(values);
+        }
+
+        @Override
+        public List<T> getSnapshot() {
+            return Collections.unmodifiableList(new ArrayList<>(values));
+        }
+
+        @Override
+        public boolean isComplete() {
+            return true;
+        }
+
+        @Override
+        public boolean isBounded() {
+            return false;
+        }
+    }
+
+    /**
+     * History keeping the most recent rolls in a ring buffer.
+     *
+     * @param <T> The value type of the rolls.
+     */
+    public static final class KeepLast<T> implements RerollHistory<T> {
+
+        /**
+         * The ring buffer of the rolls.
+         */
+        private final Object[] buffer;
+
+        /**
+         * The number of rolls since the last clear.
+         */
+        private long count = 0;
+
+        /**
+         * Create a new ring buffer history.
+         *
+         * @param capacity The number of kept rolls.
+         * @throws IllegalArgumentException The capacity was not positive.
+         */
+        public KeepLast(int capacity) throws IllegalArgumentException {
+            if (capacity <= 0) {
+                throw new IllegalArgumentException("Capacity must be positive");
+            }
+            this.buffer = new Object[capacity];
+        }
+
+        /**
+         * Get the number of kept rolls.
+         *
+         * @return The capacity of the history.
+         */
+        public int getCapacity() {
+            return buffer.length;
+        }
+
+        @Override
+        public void add(T value) {
+            buffer[(int) (count % buffer.length)] = value;
+            count++;
+        }
+
+        @Override
+        public void clear() {
+            Arrays.fill(buffer, null);
+            count = 0;
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<T> getValues() {
+            int size = (int) Math.min(count, buffer.length);
+            List<T> result = new ArrayList<>(size);
+            for (long i = count - size; i < count; i++) {
+                result.add((T) buffer[(int) (i % buffer.length)]);
+            }
+            return Collections.unmodifiableList(result);
+        }
+
+        @Override
+        public boolean isBounded() {
+            return true;
+        }
+    }
+
+    /**
+     * History keeping only the count, minimum, maximum, and sum of the rolls.
+     *
+     * @param <T> The value type of the rolls.
+     */
+    public static final class Summary<T> implements RerollHistory<T> {
+
+        /**
+         * The comparator of the rolls.
+         */
+        private final Comparator<? super T> comparator;
+
+        /**
+         * The summand of a roll, or an undefined value, if the rolls are not summed.
+         */
+        private final ToLongFunction<? super T> summand;
+
+        /**
+         * The number of rolls.
+         */
+        private long count = 0;
+
+        /**
+         * The smallest roll.
+         */
+        private T min = null;
+
+        /**
+         * The largest roll.
+         */
+        private T max = null;
+
+        /**
+         * The sum of the rolls.
+         */
+        private long sum = 0;
+
+        /**
+         * Create a new summary history.
+         *
+         * @param comparator The comparator determining the minimum and maximum.
+         * @param summand    The function converting a roll to a summand, or an
+         *                   undefined value, if the rolls are not summed.
+         */
+        public Summary(Comparator<? super T> comparator, ToLongFunction<? super T> summand) {
+            this.comparator = comparator;
+            this.summand = summand;
+        }
+
+        @Override
+        public void add(T value) {
+            count++;
+            if (value == null) {
+                return;
+            }
+            if (min == null || comparator.compare(value, min) < 0) {
+                min = value;
+            }
+            if (max == null || comparator.compare(value, max) > 0) {
+                max = value;
+            }
+            if (summand != null) {
+                sum += summand.applyAsLong(value);
+            }
+        }
+
+        @Override
+        public void clear() {
+            count = 0;
+            min = null;
+            max = null;
+            sum = 0;
+        }
+
+        @Override
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * The summary does not keep any rolls.
+         *
+         * @return The empty list.
+         */
+        @Override
+        public List<T> getValues() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isBounded() {
+            return true;
+        }
+
+        /**
+         * Get the smallest roll.
+         *
+         * @return The smallest roll, or an undefined value, if there are no rolls.
+         */
+        public T getMin() {
+            return min;
+        }
+
+        /**
+         * Get the largest roll.
+         *
+         * @return The largest roll, or an undefined value, if there are no rolls.
+         */
+        public T getMax() {
+            return max;
+        }
+
+        /**
+         * Get the sum of the rolls.
+         *
+         * @return The sum of the rolls.
+         * @throws UnsupportedOperationException The history does not sum the rolls.
+         */
+        public long getSum() throws UnsupportedOperationException {
+            if (summand == null) {
+                throw new UnsupportedOperationException("The history does not sum the rolls");
+            }
+            return sum;
+        }
+    }
+}
@@ -3,14 +3,13 @@ package com.kautiainen.antti.rpgs.dice.model;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
-import java.util.stream.Collector;
 
 /**
  * Rerolled die result represents a die results created by rerolling.
- * The rerolled die result contains all roll values, and function determining
- * the result of the reroll.
+ * The rerolled die result contains the history of the roll values, and function
+ * determining the result of the reroll. A result with an incremental combiner
+ * may use a bounded history, as its value does not depend on the stored rolls.
  */
 public class RerolledDieResult<T> implements DieResult<T> {
 
@@ -40,26 +39,7 @@ public class RerolledDieResult<T> implements DieResult<T> {
      * @return The function returning the best of the values.
      */
     public static <T> Function<List<? extends T>, ? extends T> getBestOf(Comparator<? super T> comparator) {
-        return (List<? extends T> list) -> (list.stream().collect(
-                Collector.of(
-                        () -> (new AtomicReference<>()),
-                        (AtomicReference<T> head, T item) -> {
-                            if (head.get() == null || comparator.compare(head.get(), item) < 0) {
-                                head.set(item);
-                            }
-                        },
-                        (AtomicReference<T> head, AtomicReference<T> tail) -> {
-                            T headKey = head.get();
-                            T tailKey = tail.get();
-                            if ((headKey == null && tailKey == null) ||
-                                    tailKey == null
-                                    || (headKey != null && (comparator.compare(headKey, tailKey) < 0))) {
-                                return head;
-                            } else {
-                                return tail;
-                            }
-                        },
-                        AtomicReference::get)));
+        return RerollCombiner.<T>bestOf(comparator).asFunction();
     }
 
     /**
@@ -70,26 +50,7 @@ public class RerolledDieResult<T> implements DieResult<T> {
      * @return The function returning the worst of the values.
      */
     public static <T> Function<List<? extends T>, ? extends T> getWorstOf(Comparator<? super T> comparator) {
-        return (List<? extends T> list) -> (list.stream().collect(
-                Collector.of(
-                        () -> (new AtomicReference<>()),
-                        (AtomicReference<T> head, T item) -> {
-                            if (head.get() == null || comparator.compare(head.get(), item) < 0) {
-                                head.set(item);
-                            }
-                        },
-                        (AtomicReference<T> head, AtomicReference<T> tail) -> {
-                            T headKey = head.get();
-                            T tailKey = tail.get();
-                            if ((headKey == null && tailKey == null) ||
-                                    headKey == null
-                                    || (tailKey != null && (comparator.compare(headKey, tailKey) > 0))) {
-                                return head;
-                            } else {
-                                return tail;
-                            }
-                        },
-                        AtomicReference::get)));
+        return RerollCombiner.<T>worstOf(comparator).asFunction();
     }
 
     /**
@@ -113,9 +74,9 @@ public class RerolledDieResult<T> implements DieResult<T> {
     }
 
     /**
-     * The list of the rerolled values.
+     * The history of the rerolled values.
      */
-    private final List<T> results = new ArrayList<>(1);
+    private final RerollHistory<T> history;
 
     /**
      * The rerolled die.
@@ -127,6 +88,18 @@ public class RerolledDieResult<T> implements DieResult<T> {
      */
     private Function<? super List<? extends T>, ? extends T> combiner;
 
+    /**
+     * The incremental combiner of the rerolls, or an undefined value, if the value
+     * is determined from the whole list of rerolls.
+     */
+    private final RerollCombiner<T> incremental;
+
+    /**
+     * The incremental combiner of primitive integer rolls, or an undefined value,
+     * if the incremental combiner is not an integer combiner.
+     */
+    private final IntRerollCombiner intIncremental;
+
     /**
      * The value of the result.
      */
@@ -145,20 +118,95 @@ public class RerolledDieResult<T> implements DieResult<T> {
     }
 
     /**
-     * Create a new rerolled die result.
+     * Create a new rerolled die result. If the function is a
+     * {@link RerollCombiner.ListFunction}, such as the functions of
+     * {@link #getBestOf(Comparator)} and {@link #getWorstOf(Comparator)}, the
+     * value is updated with its combiner in constant time on reroll.
      * 
      * @param die      The rerolled die.
      * @param values   The values of the rerolls.
      * @param compiler The functtion detemrining the value of the compiler.
      */
+    @SuppressWarnings("unchecked")
     public RerolledDieResult(Die<? extends T> die, List<? extends T> values,
             Function<? super List<? extends T>, ? extends T> compiler) {
         this.die = die;
         this.combiner = compiler;
-        this.results.addAll(values);
+        // A list function accepting the lists of T and returning T has the
+        // combiner of T. The wildcards of the function hide the relation of
+        // the types from the compiler.
+        Object function = compiler;
+        this.incremental = (function instanceof RerollCombiner.ListFunction<?> list
+                ? (RerollCombiner<T>) list.getCombiner()
+                : null);
+        this.intIncremental = (incremental instanceof IntRerollCombiner ints ? ints : null);
+        this.history = RerollHistory.keepAll();
+        values.forEach(this.history::add);
         this.value = compiler.apply(values);
     }
 
+    /**
+     * Create a new rerolled die result with an incremental combiner. The
+     * value of the result is updated in constant time on reroll.
+     * 
+     * @param die      The rerolled die.
+     * @param values   The values of the rerolls.
+     * @param combiner The combiner of the current value and a new roll.
+     */
+    public RerolledDieResult(Die<? extends T> die, List<? extends T> values, RerollCombiner<T> combiner) {
+        this(die, values, combiner, RerollHistory.keepAll());
+    }
+
+    /**
+     * Create a new rerolled die result with an incremental combiner and a
+     * history policy. As the value is updated incrementally, a bounded history
+     * does not affect the value of the result.
+     * 
+     * @param die      The rerolled die.
+     * @param values   The values of the rerolls.
+     * @param combiner The combiner of the current value and a new roll.
+     * @param history  The empty history storing the rolls.
+     * @throws IllegalArgumentException The history was not empty.
+     */
+    public RerolledDieResult(Die<? extends T> die, List<? extends T> values, RerollCombiner<T> combiner,
+            RerollHistory<T> history) throws IllegalArgumentException {
+        if (history.getCount() != 0) {
+            throw new IllegalArgumentException("The history was not empty");
+        }
+        this.die = die;
+        this.combiner = combiner.asFunction();
+        this.incremental = combiner;
+        this.intIncremental = (combiner instanceof IntRerollCombiner ints ? ints : null);
+        this.history = history;
+        values.forEach(history::add);
+        this.value = this.combiner.apply(values);
+    }
+
+    /**
+     * Create a new rerolled die result with an incremental combiner and a
+     * history policy. The value is determined by rolling a die.
+     * 
+     * @param die      The rolled die.
+     * @param combiner The combiner of the current value and a new roll.
+     * @param history  The empty history storing the rolls.
+     * @throws IllegalArgumentException The history was not empty.
+     */
+    public RerolledDieResult(Die<? extends T> die, RerollCombiner<T> combiner, RerollHistory<T> history)
+            throws IllegalArgumentException {
+        this(die, createList((T) die.roll()), combiner, history);
+    }
+
+    /**
+     * Create a new rerolled die result with an incremental combiner.
+     * The value is determined by rolling a die.
+     * 
+     * @param die      The rolled die.
+     * @param combiner The combiner of the current value and a new roll.
+     */
+    public RerolledDieResult(Die<? extends T> die, RerollCombiner<T> combiner) {
+        this(die, createList((T) die.roll()), combiner);
+    }
+
     /**
      * Create a new rerolled die result returning the most recent roll.
      * The value is determined by rolling a die.
@@ -166,9 +214,7 @@ public class RerolledDieResult<T> implements DieResult<T> {
      * @param die The rolled die.
      */
     public RerolledDieResult(Die<? extends T> die) {
-        this(die, createList((T) die.roll()),
-                (List<? extends T> list) -> (list != null && list.isEmpty() ? (T) list.get(list.size() - 1)
-                        : (T) null));
+        this(die, RerollCombiner.<T>last());
     }
 
     @Override
@@ -182,21 +228,38 @@ public class RerolledDieResult<T> implements DieResult<T> {
     }
 
     /**
-     * Set the values of the rerolled result.
-     * 
+     * Set the values of the rerolled result. The values are copied before the
+     * history is reset, so the values may be a view of the history of the
+     * result.
+     *
      * @param valeus The new set of reroleld values.
      * @throws IllegalArgumentException      The given value was invalid.
      * @throws UnsupportedOperationException The result is immutable.
      */
     public void setValues(List<? extends T> values) throws IllegalArgumentException, UnsupportedOperationException {
-        this.value = getResult(values);
-        this.results.clear();
-        this.results.addAll(values);
+        List<T> copy = new ArrayList<>(values);
+        this.value = getResult(copy);
+        this.history.clear();
+        copy.forEach(this.history::add);
+    }
+
+    /**
+     * Get the history of the rolls.
+     * 
+     * @return The history of the rolls of the result.
+     */
+    public RerollHistory<T> getHistory() {
+        return history;
     }
 
     /**
      * Get the result of the roll.
      * 
+     * A result with an incremental combiner does not call this method on reroll,
+     * so a subclass overriding it only changes the value of the rerolls of a
+     * result without an incremental combiner, and the value set by
+     * {@link #setValues(List)}.
+     * 
      * @param values The new set of values.
      */
     protected T getResult(List<? extends T> values) {
@@ -205,9 +268,31 @@ public class RerolledDieResult<T> implements DieResult<T> {
 
     @Override
     public T reroll() {
-        T newValue = DieResult.super.reroll();
-        this.results.add(newValue);
-        this.value = getResult(results);
+        T newValue = getDie().roll();
+        boolean first = (history.getCount() == 0);
+        this.history.add(newValue);
+        if (incremental == null) {
+            this.value = getResult(history.getValues());
+        } else {
+            this.value = (first ? newValue : combine(this.value, newValue));
+        }
         return getValue();
     }
+
+    /**
+     * Combine the current value with a new roll using the incremental combiner.
+     * An integer combiner combines integer values as primitive ints, and only
+     * the combined value is boxed.
+     * 
+     * @param current The current value.
+     * @param rolled  The rolled value.
+     * @return The combined value.
+     */
+    @SuppressWarnings("unchecked")
+    private T combine(T current, T rolled) {
+        if (intIncremental != null && current instanceof Integer head && rolled instanceof Integer tail) {
+            return (T) Integer.valueOf(intIncremental.applyAsInt(head.intValue(), tail.intValue()));
+        }
+        return incremental.apply(current, rolled);
+    }
 }
\ No newline at end of file
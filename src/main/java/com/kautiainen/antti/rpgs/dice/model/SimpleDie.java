@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 
-public class SimpleDie<E> implements Die<E> {
+public class SimpleDie<E> implements IndexedDie<E> {
     
 
     /**
@@ -20,6 +20,16 @@ public class SimpleDie<E> implements Die<E> {
         this.sides = new ArrayList<>(sides);
     }
 
+    @Override
+    public int getSideCount() {
+        return sides.size();
+    }
+
+    @Override
+    public E getSide(int index) throws IndexOutOfBoundsException {
+        return sides.get(index);
+    }
+
     @Override
     public E roll() {
         int side = (int)Math.floor(Math.random()*sides.size());
@@ -0,0 +1,537 @@
+package com.kautiainen.antti.rpgs.dice.registry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+
+/**
+ * Dice registry contains named integer dice loaded at startup.
+ *
+ * The registry is loaded from a definition file, whose lines are of form
+ * {@code name = definition}. The definition is either a side count as accepted
+ * by {@link Die#of(int)}, a comma separated list of side values, or a standard
+ * die name accepted by {@link Die#of(String)}. Empty lines and lines starting
+ * with {@code #} are ignored.
+ *
+ * The registry keeps its side and distribution tables in a single binary image,
+ * which may be written into a file and memory-mapped on the next start. The
+ * image starts with the magic number, the version, the hash of the source
+ * definitions and the number of entries. The source hash lets a start detect
+ * a stale image, whose definitions have changed since the snapshot.
+ * Each entry contains the name as a length prefixed UTF-8 string, the side
+ * table, and the distinct values with their multiplicities as length prefixed
+ * integer tables.
+ */
+public final class DiceRegistry {
+
+    /**
+     * The classpath resource of the default dice definitions.
+     */
+    public static final String DEFAULT_RESOURCE = "/com/kautiainen/antti/rpgs/dice/registry/dice.txt";
+
+    /**
+     * The magic number of the dice image.
+     */
+    public static final int MAGIC = 0x44494345;
+
+    /**
+     * The version of the dice image format.
+     */
+    public static final int VERSION = 2;
+
+    /**
+     * The source hash of a registry not created from definitions.
+     */
+    public static final long NO_SOURCE = 0L;
+
+    /**
+     * The position of the source hash in the image.
+     */
+    private static final int SOURCE_HASH_POSITION = 2 * Integer.BYTES;
+
+    /**
+     * The pattern of a side count definition.
+     */
+    private static final Pattern SIDE_COUNT = Pattern.compile("^-?\\d+$");
+
+    /**
+     * The image of the registry.
+     */
+    private final ByteBuffer image;
+
+    /**
+     * The registered dice by name.
+     */
+    private final Map<String, RegisteredDie> dice;
+
+    /**
+     * The hash of the source definitions.
+     */
+    private final long sourceHash;
+
+    /**
+     * Create a new registry from an image.
+     *
+     * @param image The image of the registry.
+     * @throws IOException The image was invalid.
+     */
+    private DiceRegistry(ByteBuffer image) throws IOException {
+        this.image = image.asReadOnlyBuffer();
+        this.dice = Collections.unmodifiableMap(decode(this.image.duplicate()));
+        this.sourceHash = this.image.getLong(SOURCE_HASH_POSITION);
+    }
+
+    /**
+     * Compute the hash of source definitions.
+     *
+     * @param definitions The source definitions.
+     * @return The hash of the definitions.
+     */
+    public static long hash(String definitions) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(definitions.getBytes(StandardCharsets.UTF_8));
+            long result = ByteBuffer.wrap(digest).getLong();
+            return (result == NO_SOURCE ? 1L : result);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Missing SHA-256", e);
+        }
+    }
+
+    /**
+     * Read the default dice definitions.
+     *
+     * @return The default definitions.
+     * @throws IllegalStateException The default resource was missing or could not
+     *                               be read.
+     */
+    private static String readDefaultDefinitions() throws IllegalStateException {
+        try (InputStream in = DiceRegistry.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + DEFAULT_RESOURCE);
+            }
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid resource " + DEFAULT_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Load the default dice definitions.
+     *
+     * @return The registry of the default dice.
+     * @throws IllegalStateException The default resource was missing or invalid.
+     */
+    public static DiceRegistry loadDefault() throws IllegalStateException {
+        try {
+            return parse(readDefaultDefinitions());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid resource " + DEFAULT_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Parse dice definitions.
+     *
+     * @param reader The reader of the definitions.
+     * @return The registry of the defined dice.
+     * @throws IOException              The reading failed.
+     * @throws IllegalArgumentException Some definition was invalid.
+     */
+    public static DiceRegistry parse(Reader reader) throws IOException, IllegalArgumentException {
+        StringBuilder text = new StringBuilder();
+        char[] buffer = new char[4096];
+        int length;
+        while ((length = reader.read(buffer)) >= 0) {
+            text.append(buffer, 0, length);
+        }
+        return parse(text.toString());
+    }
+
+    /**
+     * Parse dice definitions.
+     *
+     * @param text The definitions.
+     * @return The registry of the defined dice, whose source hash is the hash of
+     *         the definitions.
+     * @throws IllegalArgumentException Some definition was invalid.
+     */
+    public static DiceRegistry parse(String text) throws IllegalArgumentException {
+        Map<String, IndexedDie<Integer>> definitions = new LinkedHashMap<>();
+        List<String> lines = text.lines().toList();
+        int lineNumber = 0;
+        for (String rawLine : lines) {
+            lineNumber++;
+            String line = rawLine.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                throw new IllegalArgumentException("Missing definition on line " + lineNumber);
+            }
+            String name = line.substring(0, separator).strip();
+            if (name.isEmpty()) {
+                throw new IllegalArgumentException("Missing name on line " + lineNumber);
+            }
+            if (definitions.containsKey(name)) {
+                throw new IllegalArgumentException("Duplicate die " + name + " on line " + lineNumber);
+            }
+            try {
+                definitions.put(name, createDie(line.substring(separator + 1).strip()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid die " + name + " on line " + lineNumber, e);
+            }
+        }
+        return create(definitions, hash(text));
+    }
+
+    /**
+     * Create a die from a definition.
+     *
+     * @param definition The definition of the die.
+     * @return The defined die.
+     * @throws IllegalArgumentException The definition was invalid.
+     */
+    private static IndexedDie<Integer> createDie(String definition) throws IllegalArgumentException {
+        Die<Integer> result;
+        if (definition.contains(",")) {
+            List<Integer> sides = new ArrayList<>();
+            for (String side : definition.split(",")) {
+                sides.add(Integer.parseInt(side.strip()));
+            }
+            result = Die.of(sides);
+        } else if (SIDE_COUNT.matcher(definition).matches()) {
+            result = Die.of(Integer.parseInt(definition));
+        } else {
+            result = Die.of(definition);
+        }
+        if (!(result instanceof IndexedDie<Integer> indexed)) {
+            throw new IllegalArgumentException("The die does not have known sides");
+        }
+        return indexed;
+    }
+
+    /**
+     * Create a registry of dice.
+     *
+     * @param definitions The dice by name.
+     * @return The registry of the dice with the source hash {@link #NO_SOURCE}.
+     * @throws IllegalArgumentException Some die had no sides.
+     */
+    public static DiceRegistry of(Map<String, ? extends IndexedDie<Integer>> definitions)
+            throws IllegalArgumentException {
+        return create(definitions, NO_SOURCE);
+    }
+
+    /**
+     * Create a registry of dice.
+     *
+     * @param definitions The dice by name.
+     * @param sourceHash  The hash of the source definitions.
+     * @return The registry of the dice.
+     * @throws IllegalArgumentException Some die had no sides.
+     */
+    private static DiceRegistry create(Map<String, ? extends IndexedDie<Integer>> definitions, long sourceHash)
+            throws IllegalArgumentException {
+        try {
+            return new DiceRegistry(encode(definitions, sourceHash));
+        } catch (IOException e) {
+            throw new IllegalStateException("Invalid encoded image", e);
+        }
+    }
+
+    /**
+     * Memory-map a registry image written by {@link #snapshot(Path)}.
+     *
+     * @param file The image file.
+     * @return The registry reading its dice from the mapped image.
+     * @throws IOException The reading failed, or the image was invalid.
+     */
+    public static DiceRegistry map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new DiceRegistry(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Memory-map a registry image of the default dice. If the image is missing,
+     * invalid, or created from different definitions, the default dice are
+     * parsed and their image replaces the file.
+     *
+     * @param file The image file.
+     * @return The registry of the default dice.
+     * @throws IOException           The writing of the image failed.
+     * @throws IllegalStateException The default resource was missing or invalid.
+     */
+    public static DiceRegistry mapOrLoadDefault(Path file) throws IOException, IllegalStateException {
+        try {
+            return mapOrParse(file, readDefaultDefinitions());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Invalid resource " + DEFAULT_RESOURCE, e);
+        }
+    }
+
+    /**
+     * Memory-map a registry image of given definitions. If the image is missing,
+     * invalid, or its source hash differs from the hash of the definitions, the
+     * definitions are parsed and their image replaces the file.
+     *
+     * @param file        The image file.
+     * @param definitions The source definitions.
+     * @return The registry of the definitions.
+     * @throws IOException              The writing of the image failed.
+     * @throws IllegalArgumentException Some definition was invalid.
+     */
+    public static DiceRegistry mapOrParse(Path file, String definitions)
+            throws IOException, IllegalArgumentException {
+        long sourceHash = hash(definitions);
+        if (Files.isRegularFile(file)) {
+            try {
+                DiceRegistry mapped = map(file);
+                if (mapped.getSourceHash() == sourceHash) {
+                    return mapped;
+                }
+            } catch (IOException e) {
+                // The invalid image is rewritten from the definitions.
+            }
+        }
+        DiceRegistry result = parse(definitions);
+        result.snapshot(file);
+        return result;
+    }
+
+    /**
+     * Write the image of the registry into a file. The image is written into a
+     * temporary file, which replaces the file, so a concurrent start never maps a
+     * partially written image.
+     *
+     * @param file The image file.
+     * @throws IOException The writing failed.
+     */
+    public void snapshot(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer content = image.duplicate();
+                content.rewind();
+                while (content.hasRemaining()) {
+                    channel.write(content);
+                }
+                channel.force(false);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Encode dice into an image.
+     *
+     * @param definitions The dice by name.
+     * @param sourceHash  The hash of the source definitions.
+     * @return The image of the dice.
+     * @throws IllegalArgumentException Some die had no sides.
+     */
+    private static ByteBuffer encode(Map<String, ? extends IndexedDie<Integer>> definitions, long sourceHash)
+            throws IllegalArgumentException {
+        List<byte[]> names = new ArrayList<>(definitions.size());
+        List<int[]> sideTables = new ArrayList<>(definitions.size());
+        List<Map<Integer, Integer>> valueTables = new ArrayList<>(definitions.size());
+        long size = 3 * Integer.BYTES + Long.BYTES;
+        for (Map.Entry<String, ? extends IndexedDie<Integer>> entry : definitions.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            IndexedDie<Integer> die = entry.getValue();
+            int[] sides = new int[die.getSideCount()];
+            if (sides.length == 0) {
+                throw new IllegalArgumentException("The die " + entry.getKey() + " has no sides");
+            }
+            Map<Integer, Integer> values = new LinkedHashMap<>();
+            for (int i = 0; i < sides.length; i++) {
+                sides[i] = die.getSide(i);
+                values.merge(sides[i], 1, Integer::sum);
+            }
+            names.add(name);
+            sideTables.add(sides);
+            valueTables.add(values);
+            size += Integer.BYTES + name.length + Integer.BYTES * (2L + sides.length + 2L * values.size());
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Too large registry");
+        }
+        ByteBuffer result = ByteBuffer.allocate((int) size);
+        result.putInt(MAGIC).putInt(VERSION).putLong(sourceHash).putInt(names.size());
+        for (int i = 0; i < names.size(); i++) {
+            result.putInt(names.get(i).length).put(names.get(i));
+            result.putInt(sideTables.get(i).length);
+            for (int side : sideTables.get(i)) {
+                result.putInt(side);
+            }
+            Map<Integer, Integer> values = valueTables.get(i);
+            result.putInt(values.size());
+            values.keySet().forEach(result::putInt);
+            values.values().forEach(result::putInt);
+        }
+        return result.flip();
+    }
+
+    /**
+     * Read a length prefix of the image.
+     *
+     * @param image The image.
+     * @return The length.
+     * @throws IOException The length was invalid.
+     */
+    private static int readLength(ByteBuffer image) throws IOException {
+        int result = image.getInt();
+        if (result < 0 || result > image.remaining()) {
+            throw new IOException("Invalid dice image length");
+        }
+        return result;
+    }
+
+    /**
+     * Read an integer table of the image without copying it.
+     *
+     * @param image  The image.
+     * @param length The number of integers of the table.
+     * @return The view of the table.
+     * @throws IOException The table exceeded the image.
+     */
+    private static IntBuffer readTable(ByteBuffer image, int length) throws IOException {
+        if ((long) length * Integer.BYTES > image.remaining()) {
+            throw new IOException("Invalid dice image table");
+        }
+        IntBuffer result = image.slice(image.position(), length * Integer.BYTES).asIntBuffer();
+        image.position(image.position() + length * Integer.BYTES);
+        return result;
+    }
+
+    /**
+     * Decode the dice of an image.
+     *
+     * @param image The image.
+     * @return The dice by name.
+     * @throws IOException The image was invalid.
+     */
+    private static Map<String, RegisteredDie> decode(ByteBuffer image) throws IOException {
+        try {
+            if (image.getInt() != MAGIC) {
+                throw new IOException("Not a dice image");
+            }
+            if (image.getInt() != VERSION) {
+                throw new IOException("Unsupported dice image version");
+            }
+            image.getLong();
+            int count = readLength(image);
+            Map<String, RegisteredDie> result = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                byte[] nameBytes = new byte[readLength(image)];
+                image.get(nameBytes);
+                String name = new String(nameBytes, StandardCharsets.UTF_8);
+                IntBuffer sides = readTable(image, readLength(image));
+                int valueCount = readLength(image);
+                IntBuffer values = readTable(image, valueCount);
+                IntBuffer multiplicities = readTable(image, valueCount);
+                if (sides.limit() == 0 || valueCount == 0 || result.containsKey(name)) {
+                    throw new IOException("Invalid dice image entry " + name);
+                }
+                result.put(name, new RegisteredDie(name, sides, values, multiplicities));
+            }
+            if (image.hasRemaining()) {
+                throw new IOException("Trailing data in dice image");
+            }
+            return result;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated dice image", e);
+        }
+    }
+
+    /**
+     * Get a registered die.
+     *
+     * @param name The name of the die.
+     * @return The die with the name.
+     * @throws NoSuchElementException The die does not exist.
+     */
+    public RegisteredDie get(String name) throws NoSuchElementException {
+        RegisteredDie result = dice.get(name);
+        if (result == null) {
+            throw new NoSuchElementException("No die " + name);
+        }
+        return result;
+    }
+
+    /**
+     * Find a registered die.
+     *
+     * @param name The name of the die.
+     * @return The die with the name, if it exists.
+     */
+    public Optional<RegisteredDie> find(String name) {
+        return Optional.ofNullable(dice.get(name));
+    }
+
+    /**
+     * Get the names of the registered dice.
+     *
+     * @return The unmodifiable set of the names in the order of the definitions.
+     */
+    public Set<String> getNames() {
+        return dice.keySet();
+    }
+
+    /**
+     * Get the number of registered dice.
+     *
+     * @return The number of dice.
+     */
+    public int size() {
+        return dice.size();
+    }
+
+    /**
+     * Get the hash of the source definitions.
+     *
+     * @return The hash of the definitions the registry was parsed from, or
+     *         {@link #NO_SOURCE}, if the registry was not parsed.
+     */
+    public long getSourceHash() {
+        return sourceHash;
+    }
+
+    /**
+     * Get the size of the image.
+     *
+     * @return The number of bytes of the image of the registry.
+     */
+    public int getImageSize() {
+        return image.limit();
+    }
+}
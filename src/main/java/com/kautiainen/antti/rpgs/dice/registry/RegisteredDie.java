@@ -0,0 +1,154 @@
+package com.kautiainen.antti.rpgs.dice.registry;
+
+import java.nio.IntBuffer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.random.RandomGenerator;
+
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+import com.kautiainen.antti.rpgs.dice.statistics.ExactDistribution;
+
+/**
+ * Registered die is a named integer die of a dice registry.
+ *
+ * The die reads its sides and its distribution table directly from the image of
+ * the registry, which may be a memory-mapped file. The die never copies the
+ * tables, so creating the die does not depend on the number of its sides.
+ */
+public class RegisteredDie implements IndexedDie<Integer> {
+
+    /**
+     * The name of the die.
+     */
+    private final String name;
+
+    /**
+     * The side table of the die.
+     */
+    private final IntBuffer sides;
+
+    /**
+     * The distinct side values in the order of their first appearance.
+     */
+    private final IntBuffer values;
+
+    /**
+     * The number of sides of each distinct value.
+     */
+    private final IntBuffer multiplicities;
+
+    /**
+     * The distribution of the die, or an undefined value, if the distribution has
+     * not been requested yet.
+     */
+    private volatile ExactDistribution<Integer> distribution;
+
+    /**
+     * Create a new registered die.
+     *
+     * @param name           The name of the die.
+     * @param sides          The side table of the die.
+     * @param values         The distinct side values.
+     * @param multiplicities The number of sides of each distinct value.
+     */
+    RegisteredDie(String name, IntBuffer sides, IntBuffer values, IntBuffer multiplicities) {
+        this.name = name;
+        this.sides = sides;
+        this.values = values;
+        this.multiplicities = multiplicities;
+    }
+
+    /**
+     * Get the name of the die.
+     *
+     * @return The name of the die in the registry.
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public int getSideCount() {
+        return sides.limit();
+    }
+
+    @Override
+    public Integer getSide(int index) throws IndexOutOfBoundsException {
+        return getSideValue(index);
+    }
+
+    /**
+     * Get the value of a side without boxing.
+     *
+     * @param index The index of the side.
+     * @return The value of the side.
+     * @throws IndexOutOfBoundsException The index was not a valid side index.
+     */
+    public int getSideValue(int index) throws IndexOutOfBoundsException {
+        return sides.get(index);
+    }
+
+    /**
+     * Roll the die without boxing.
+     *
+     * @param random The random source of the roll.
+     * @return The value of the rolled side.
+     */
+    public int rollValue(RandomGenerator random) {
+        return sides.get(rollIndex(random));
+    }
+
+    /**
+     * Get the number of distinct side values.
+     *
+     * @return The number of entries of the distribution table.
+     */
+    public int getValueCount() {
+        return values.limit();
+    }
+
+    /**
+     * Get a distinct side value.
+     *
+     * @param index The index of the distribution table entry.
+     * @return The side value of the entry.
+     * @throws IndexOutOfBoundsException The index was not a valid entry index.
+     */
+    public int getValue(int index) throws IndexOutOfBoundsException {
+        return values.get(index);
+    }
+
+    /**
+     * Get the number of sides of a distinct side value.
+     *
+     * @param index The index of the distribution table entry.
+     * @return The number of sides with the value of the entry.
+     * @throws IndexOutOfBoundsException The index was not a valid entry index.
+     */
+    public int getMultiplicity(int index) throws IndexOutOfBoundsException {
+        return multiplicities.get(index);
+    }
+
+    /**
+     * Get the distribution of the die.
+     *
+     * @return The exact distribution of a single roll of the die.
+     */
+    public ExactDistribution<Integer> getDistribution() {
+        ExactDistribution<Integer> result = distribution;
+        if (result == null) {
+            Map<Integer, Integer> weights = new LinkedHashMap<>();
+            for (int i = 0; i < getValueCount(); i++) {
+                weights.put(getValue(i), getMultiplicity(i));
+            }
+            result = ExactDistribution.ofWeights(weights);
+            distribution = result;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
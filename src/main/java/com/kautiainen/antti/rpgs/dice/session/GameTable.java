@@ -0,0 +1,314 @@
+package com.kautiainen.antti.rpgs.dice.session;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.random.RandomGenerator;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+import com.kautiainen.antti.rpgs.dice.model.RerollCombiner;
+import com.kautiainen.antti.rpgs.dice.model.RerollHistory;
+import com.kautiainen.antti.rpgs.dice.model.RerolledDieResult;
+
+/**
+ * Game table is a session with its own random stream, open rerollable results
+ * and bounded roll history.
+ *
+ * The tables do not share any state, so the rolls of different tables never
+ * contend. Within a table, the open results are kept in a concurrent map, and
+ * each result is locked on its own while it is rerolled. Only the random stream
+ * and the history of the table are guarded by locks of the table.
+ */
+public class GameTable {
+
+    /**
+     * The identifier of the table.
+     */
+    private final String id;
+
+    /**
+     * The random stream of the table. The stream is guarded by itself.
+     */
+    private final RandomGenerator random;
+
+    /**
+     * The maximal number of records in the history.
+     */
+    private final int historyCapacity;
+
+    /**
+     * The roll history of the table. The history is guarded by itself.
+     */
+    private final Deque<RollRecord> history;
+
+    /**
+     * The open rerollable results of the table.
+     */
+    private final ConcurrentMap<Long, RerolledDieResult<?>> openResults = new ConcurrentHashMap<>();
+
+    /**
+     * The generator of the result identifiers.
+     */
+    private final AtomicLong nextResultId = new AtomicLong();
+
+    /**
+     * The time of the last access in nanoseconds of {@link System#nanoTime()}.
+     */
+    private volatile long lastAccess = System.nanoTime();
+
+    /**
+     * Create a new game table.
+     *
+     * @param id              The identifier of the table.
+     * @param random          The random stream of the table.
+     * @param historyCapacity The maximal number of records in the history.
+     * @throws IllegalArgumentException The history capacity was negative.
+     */
+    public GameTable(String id, RandomGenerator random, int historyCapacity) throws IllegalArgumentException {
+        if (historyCapacity < 0) {
+            throw new IllegalArgumentException("Negative history capacity");
+        }
+        this.id = id;
+        this.random = random;
+        this.historyCapacity = historyCapacity;
+        this.history = new ArrayDeque<>(Math.min(historyCapacity, 64));
+    }
+
+    /**
+     * Get the identifier of the table.
+     *
+     * @return The identifier of the table.
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Get the time of the last access.
+     *
+     * @return The time of the last access in nanoseconds of
+     *         {@link System#nanoTime()}.
+     */
+    public long getLastAccess() {
+        return lastAccess;
+    }
+
+    /**
+     * Mark the table accessed.
+     */
+    private void touch() {
+        lastAccess = System.nanoTime();
+    }
+
+    /**
+     * Roll a die without recording the roll.
+     *
+     * An indexed die is rolled with the random stream of the table. Other dice
+     * are rolled with their own random source.
+     *
+     * @param <T> The value type of the die.
+     * @param die The rolled die.
+     * @return The rolled value.
+     */
+    private <T> T rollDie(Die<? extends T> die) {
+        if (die instanceof IndexedDie<? extends T> indexed) {
+            int side;
+            synchronized (random) {
+                side = indexed.rollIndex(random);
+            }
+            return indexed.getSide(side);
+        } else {
+            return die.roll();
+        }
+    }
+
+    /**
+     * Add a roll into the history.
+     *
+     * @param die      The rolled die.
+     * @param value    The rolled value.
+     * @param resultId The identifier of the open result, or a negative value for
+     *                 a plain roll.
+     */
+    private void record(Die<?> die, Object value, long resultId) {
+        if (historyCapacity == 0) {
+            return;
+        }
+        RollRecord entry = new RollRecord(Instant.now(), die, value, resultId);
+        synchronized (history) {
+            if (history.size() == historyCapacity) {
+                history.removeFirst();
+            }
+            history.addLast(entry);
+        }
+    }
+
+    /**
+     * Roll a die on the table.
+     *
+     * @param <T> The value type of the die.
+     * @param die The rolled die.
+     * @return The rolled value.
+     */
+    public <T> T roll(Die<? extends T> die) {
+        touch();
+        T result = rollDie(die);
+        record(die, result, -1);
+        return result;
+    }
+
+    /**
+     * Open a rerollable result keeping the most recent roll. The result only
+     * stores its most recent roll.
+     *
+     * @param <T> The value type of the die.
+     * @param die The rolled die.
+     * @return The identifier of the open result.
+     */
+    public <T> long open(Die<? extends T> die) {
+        return open(die, RerollCombiner.<T>last(), RerollHistory.keepLast(1));
+    }
+
+    /**
+     * Open a rerollable result. The functions created with
+     * {@link RerollCombiner#asFunction()}, such as
+     * {@link RerolledDieResult#getBestOf()}, update the value of the result in
+     * constant time on reroll.
+     *
+     * @param <T>      The value type of the die.
+     * @param die      The rolled die.
+     * @param combiner The function determining the value from the rolls.
+     * @return The identifier of the open result.
+     */
+    public <T> long open(Die<? extends T> die, Function<? super List<? extends T>, ? extends T> combiner) {
+        touch();
+        long resultId = nextResultId.getAndIncrement();
+        Die<T> tableDie = () -> {
+            T value = rollDie(die);
+            record(die, value, resultId);
+            return value;
+        };
+        openResults.put(resultId, new RerolledDieResult<>(tableDie,
+                RerolledDieResult.createList(tableDie.roll()), combiner));
+        return resultId;
+    }
+
+    /**
+     * Open a rerollable result with an incremental combiner.
+     *
+     * @param <T>      The value type of the die.
+     * @param die      The rolled die.
+     * @param combiner The combiner of the current value and a new roll.
+     * @param history  The empty history storing the rolls of the result.
+     * @return The identifier of the open result.
+     * @throws IllegalArgumentException The history was not empty.
+     */
+    public <T> long open(Die<? extends T> die, RerollCombiner<T> combiner, RerollHistory<T> history)
+            throws IllegalArgumentException {
+        touch();
+        long resultId = nextResultId.getAndIncrement();
+        Die<T> tableDie = () -> {
+            T value = rollDie(die);
+            record(die, value, resultId);
+            return value;
+        };
+        openResults.put(resultId, new RerolledDieResult<>(tableDie, combiner, history));
+        return resultId;
+    }
+
+    /**
+     * Get an open result.
+     *
+     * @param <T>      The value type of the result.
+     * @param resultId The identifier of the open result.
+     * @return The open result.
+     * @throws NoSuchElementException The result does not exist.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> RerolledDieResult<T> getResult(long resultId) throws NoSuchElementException {
+        touch();
+        RerolledDieResult<?> result = openResults.get(resultId);
+        if (result == null) {
+            throw new NoSuchElementException("No open result " + resultId);
+        }
+        return (RerolledDieResult<T>) result;
+    }
+
+    /**
+     * Get the value of an open result.
+     *
+     * @param resultId The identifier of the open result.
+     * @return The current value of the result.
+     * @throws NoSuchElementException The result does not exist.
+     */
+    public Object getValue(long resultId) throws NoSuchElementException {
+        RerolledDieResult<?> result = getResult(resultId);
+        synchronized (result) {
+            return result.getValue();
+        }
+    }
+
+    /**
+     * Reroll an open result.
+     *
+     * @param resultId The identifier of the open result.
+     * @return The new value of the result.
+     * @throws NoSuchElementException The result does not exist.
+     */
+    public Object reroll(long resultId) throws NoSuchElementException {
+        RerolledDieResult<?> result = getResult(resultId);
+        synchronized (result) {
+            return result.reroll();
+        }
+    }
+
+    /**
+     * Close an open result.
+     *
+     * @param resultId The identifier of the open result.
+     * @return True, if and only if the result was open.
+     */
+    public boolean close(long resultId) {
+        touch();
+        return openResults.remove(resultId) != null;
+    }
+
+    /**
+     * Get the identifiers of the open results.
+     *
+     * @return The unmodifiable set of the identifiers of the open results.
+     */
+    public Set<Long> getOpenResults() {
+        return Collections.unmodifiableSet(openResults.keySet());
+    }
+
+    /**
+     * Get the roll history.
+     *
+     * @return The list of the most recent rolls from the oldest to the newest.
+     */
+    public List<RollRecord> getHistory() {
+        synchronized (history) {
+            return new ArrayList<>(history);
+        }
+    }
+
+    /**
+     * Get the maximal size of the history.
+     *
+     * @return The maximal number of records in the history.
+     */
+    public int getHistoryCapacity() {
+        return historyCapacity;
+    }
+}
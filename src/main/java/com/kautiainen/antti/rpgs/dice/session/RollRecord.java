@@ -0,0 +1,99 @@
+package com.kautiainen.antti.rpgs.dice.session;
+
+import java.time.Instant;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+
+/**
+ * Roll record is an entry of the roll history of a game table.
+ */
+public class RollRecord {
+
+    /**
+     * The time of the roll.
+     */
+    private final Instant time;
+
+    /**
+     * The rolled die.
+     */
+    private final Die<?> die;
+
+    /**
+     * The rolled value.
+     */
+    private final Object value;
+
+    /**
+     * The identifier of the open result the roll belongs to, or a negative value
+     * for a plain roll.
+     */
+    private final long resultId;
+
+    /**
+     * Create a new roll record.
+     *
+     * @param time     The time of the roll.
+     * @param die      The rolled die.
+     * @param value    The rolled value.
+     * @param resultId The identifier of the open result, or a negative value for
+     *                 a plain roll.
+     */
+    public RollRecord(Instant time, Die<?> die, Object value, long resultId) {
+        this.time = time;
+        this.die = die;
+        this.value = value;
+        this.resultId = resultId;
+    }
+
+    /**
+     * Get the time of the roll.
+     *
+     * @return The time of the roll.
+     */
+    public Instant getTime() {
+        return time;
+    }
+
+    /**
+     * Get the rolled die.
+     *
+     * @return The rolled die.
+     */
+    public Die<?> getDie() {
+        return die;
+    }
+
+    /**
+     * Get the rolled value.
+     *
+     * @return The rolled value.
+     */
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Get the identifier of the open result the roll belongs to.
+     *
+     * @return The identifier of the open result, or a negative value for a plain
+     *         roll.
+     */
+    public long getResultId() {
+        return resultId;
+    }
+
+    /**
+     * Is the roll a roll or a reroll of an open result.
+     *
+     * @return True, if and only if the roll belongs to an open result.
+     */
+    public boolean isResultRoll() {
+        return resultId >= 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s=%s%s", time, die, value, isResultRoll() ? " #" + resultId : "");
+    }
+}
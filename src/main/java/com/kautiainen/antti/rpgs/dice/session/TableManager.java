@@ -0,0 +1,160 @@
+package com.kautiainen.antti.rpgs.dice.session;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+/**
+ * Table manager hosts the game tables of a server.
+ *
+ * Every table gets its own random stream split from the random source of the
+ * manager, so tables never share a random number generator. The tables are
+ * kept in a concurrent map, and the tables idle longer than the given time may
+ * be evicted.
+ */
+public class TableManager {
+
+    /**
+     * The default maximal size of the table history.
+     */
+    public static final int DEFAULT_HISTORY_CAPACITY = 100;
+
+    /**
+     * The random source the streams of the tables are split from. The source is
+     * guarded by itself.
+     */
+    private final SplittableGenerator random;
+
+    /**
+     * The maximal size of the history of the tables.
+     */
+    private final int historyCapacity;
+
+    /**
+     * The tables by their identifiers.
+     */
+    private final ConcurrentMap<String, GameTable> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new table manager.
+     *
+     * @param random          The random source the random streams of the tables
+     *                        are split from.
+     * @param historyCapacity The maximal number of records in the history of a
+     *                        table.
+     * @throws IllegalArgumentException The history capacity was negative.
+     */
+    public TableManager(SplittableGenerator random, int historyCapacity) throws IllegalArgumentException {
+        if (historyCapacity < 0) {
+            throw new IllegalArgumentException("Negative history capacity");
+        }
+        this.random = random;
+        this.historyCapacity = historyCapacity;
+    }
+
+    /**
+     * Create a new table manager with the default history capacity.
+     */
+    public TableManager() {
+        this(new SplittableRandom(), DEFAULT_HISTORY_CAPACITY);
+    }
+
+    /**
+     * Get a table, or create it, if it does not exist.
+     *
+     * @param id The identifier of the table.
+     * @return The table with the given identifier.
+     */
+    public GameTable getTable(String id) {
+        GameTable result = tables.get(id);
+        if (result == null) {
+            result = tables.computeIfAbsent(id, (String key) -> {
+                SplittableGenerator stream;
+                synchronized (random) {
+                    stream = random.split();
+                }
+                return new GameTable(key, stream, historyCapacity);
+            });
+        }
+        return result;
+    }
+
+    /**
+     * Find an existing table.
+     *
+     * @param id The identifier of the table.
+     * @return The table with the given identifier, if it exists.
+     */
+    public Optional<GameTable> findTable(String id) {
+        return Optional.ofNullable(tables.get(id));
+    }
+
+    /**
+     * Remove a table.
+     *
+     * @param id The identifier of the removed table.
+     * @return True, if and only if the table existed.
+     */
+    public boolean removeTable(String id) {
+        return tables.remove(id) != null;
+    }
+
+    /**
+     * Get the identifiers of the tables.
+     *
+     * @return The unmodifiable set of the identifiers of the tables.
+     */
+    public Set<String> getTableIds() {
+        return Collections.unmodifiableSet(tables.keySet());
+    }
+
+    /**
+     * Get the number of tables.
+     *
+     * @return The number of tables.
+     */
+    public int size() {
+        return tables.size();
+    }
+
+    /**
+     * Evict the tables idle for at least the given time.
+     *
+     * @param idleTime The minimal idle time of the evicted tables.
+     * @return The number of evicted tables.
+     */
+    public int evictIdle(Duration idleTime) {
+        long limit = System.nanoTime() - idleTime.toNanos();
+        int result = 0;
+        for (GameTable table : tables.values()) {
+            // Removing only the same instance does not evict a table recreated
+            // meanwhile.
+            if (table.getLastAccess() - limit <= 0 && tables.remove(table.getId(), table)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Schedule periodic eviction of the idle tables.
+     *
+     * @param executor The executor performing the eviction.
+     * @param idleTime The minimal idle time of the evicted tables.
+     * @param period   The period of the eviction.
+     * @return The scheduled eviction task.
+     */
+    public ScheduledFuture<?> scheduleEviction(ScheduledExecutorService executor, Duration idleTime,
+            Duration period) {
+        long nanos = period.toNanos();
+        return executor.scheduleWithFixedDelay(() -> evictIdle(idleTime), nanos, nanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -0,0 +1,115 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+/**
+ * Estimate is a sampled estimate of an expected value with its standard error.
+ */
+public class Estimate {
+
+    /**
+     * The standard normal quantile of the 95 percent confidence interval.
+     */
+    public static final double Z95 = 1.959963984540054;
+
+    /**
+     * The estimated value.
+     */
+    private final double value;
+
+    /**
+     * The standard error of the estimate.
+     */
+    private final double standardError;
+
+    /**
+     * The number of samples.
+     */
+    private final long samples;
+
+    /**
+     * The sampling mode.
+     */
+    private final SamplingMode mode;
+
+    /**
+     * Create a new estimate.
+     *
+     * @param value         The estimated value.
+     * @param standardError The standard error of the estimate.
+     * @param samples       The number of samples.
+     * @param mode          The sampling mode.
+     */
+    public Estimate(double value, double standardError, long samples, SamplingMode mode) {
+        this.value = value;
+        this.standardError = standardError;
+        this.samples = samples;
+        this.mode = mode;
+    }
+
+    /**
+     * Get the estimated value.
+     *
+     * @return The estimated value.
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Get the standard error.
+     *
+     * @return The standard error of the estimate.
+     */
+    public double getStandardError() {
+        return standardError;
+    }
+
+    /**
+     * Get the number of samples.
+     *
+     * @return The number of evaluated samples.
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * Get the sampling mode.
+     *
+     * @return The sampling mode of the estimate.
+     */
+    public SamplingMode getMode() {
+        return mode;
+    }
+
+    /**
+     * Get the lower bound of the 95 percent confidence interval.
+     *
+     * @return The lower bound of the confidence interval.
+     */
+    public double getLower() {
+        return value - Z95 * standardError;
+    }
+
+    /**
+     * Get the upper bound of the 95 percent confidence interval.
+     *
+     * @return The upper bound of the confidence interval.
+     */
+    public double getUpper() {
+        return value + Z95 * standardError;
+    }
+
+    /**
+     * Get the relative error.
+     *
+     * @return The standard error divided by the absolute estimated value.
+     */
+    public double getRelativeError() {
+        return standardError / Math.abs(value);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%g ± %g (%s, %d samples)", value, standardError, mode, samples);
+    }
+}
@@ -0,0 +1,25 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+/**
+ * Sampling mode determines how the rolls of the sampled dice are generated.
+ */
+public enum SamplingMode {
+    /**
+     * Independent random rolls.
+     */
+    PLAIN,
+    /**
+     * Stratified sampling over all side combinations of the leading dice, with
+     * an equal number of samples in each stratum.
+     */
+    STRATIFIED,
+    /**
+     * Antithetic pairs, where the second roll of the pair takes the mirrored side
+     * of each die.
+     */
+    ANTITHETIC,
+    /**
+     * Randomly shifted replicates of the low-discrepancy Sobol sequence.
+     */
+    SOBOL;
+}
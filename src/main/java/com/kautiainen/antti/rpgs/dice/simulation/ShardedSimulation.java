@@ -0,0 +1,197 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.JumpableGenerator;
+import java.util.random.RandomGeneratorFactory;
+
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+import com.kautiainen.antti.rpgs.dice.statistics.RollStatistics;
+
+/**
+ * Sharded simulation runs a Monte Carlo simulation split into shards of
+ * consecutive work units, either in the current process or in forked worker
+ * processes.
+ *
+ * The work unit k uses the random stream obtained by jumping the generator
+ * seeded with the seed of the specification k times, so the streams of the
+ * units never overlap. The outcome histograms of the shards are merged by
+ * adding the counts, which makes the result bit-identical regardless of the
+ * number of shards.
+ *
+ * The class is also the main class of the worker processes. A worker reads the
+ * specification and its range of work units from the command line, and writes
+ * the resulting histogram into the standard output.
+ */
+public class ShardedSimulation {
+
+    /**
+     * The simulated specification.
+     */
+    private final SimulationSpec spec;
+
+    /**
+     * Create a new sharded simulation.
+     *
+     * @param spec The simulated specification.
+     */
+    public ShardedSimulation(SimulationSpec spec) {
+        this.spec = spec;
+    }
+
+    /**
+     * Get the simulated specification.
+     *
+     * @return The specification of the simulation.
+     */
+    public SimulationSpec getSpec() {
+        return spec;
+    }
+
+    /**
+     * Run a shard of work units in the current thread.
+     *
+     * @param firstUnit The index of the first work unit.
+     * @param unitCount The number of work units.
+     * @return The histogram of the outcomes of the trials of the work units.
+     * @throws IllegalArgumentException The range of the work units was invalid.
+     */
+    public RollStatistics runShard(long firstUnit, long unitCount) throws IllegalArgumentException {
+        if (firstUnit < 0 || unitCount < 0 || firstUnit + unitCount > spec.getUnitCount()) {
+            throw new IllegalArgumentException("Invalid work unit range");
+        }
+        RollStatistics result = new RollStatistics();
+        List<IndexedDie<Integer>> dice = spec.createDice();
+        int[][] sides = new int[dice.size()][];
+        for (int i = 0; i < sides.length; i++) {
+            sides[i] = dice.get(i).getSides().stream().mapToInt(Integer::intValue).toArray();
+        }
+        SimulationSpec.Combination combination = spec.getCombination();
+        JumpableGenerator generator = (JumpableGenerator) RandomGeneratorFactory.of(spec.getAlgorithm())
+                .create(spec.getSeed());
+        for (long unit = 0; unit < firstUnit; unit++) {
+            generator.jump();
+        }
+        for (long unit = firstUnit, end = firstUnit + unitCount; unit < end; unit++) {
+            RandomGenerator random = generator.copyAndJump();
+            for (long trial = spec.getUnitTrials(unit); trial > 0; trial--) {
+                int[] first = sides[0];
+                int outcome = first[random.nextInt(first.length)];
+                for (int die = 1; die < sides.length; die++) {
+                    outcome = combination.combine(outcome, sides[die][random.nextInt(sides[die].length)]);
+                }
+                result.accept(outcome);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Run the whole simulation in the current thread.
+     *
+     * @return The histogram of the outcomes of all trials.
+     */
+    public RollStatistics run() {
+        return runShard(0, spec.getUnitCount());
+    }
+
+    /**
+     * Split the work units into contiguous shards.
+     *
+     * @param shards The number of shards.
+     * @return The list of the first unit and the unit count of each non-empty
+     *         shard.
+     * @throws IllegalArgumentException The number of shards was not positive.
+     */
+    public List<long[]> getShards(int shards) throws IllegalArgumentException {
+        if (shards < 1) {
+            throw new IllegalArgumentException("The number of shards must be positive");
+        }
+        long units = spec.getUnitCount();
+        List<long[]> result = new ArrayList<>(shards);
+        long first = 0;
+        for (int shard = 0; shard < shards; shard++) {
+            long count = units / shards + (shard < units % shards ? 1 : 0);
+            if (count > 0) {
+                result.add(new long[] { first, count });
+            }
+            first += count;
+        }
+        return result;
+    }
+
+    /**
+     * Run the simulation in forked worker processes.
+     *
+     * @param processes The maximal number of worker processes.
+     * @return The histogram of the outcomes of all trials.
+     * @throws IOException           The communication with a worker failed.
+     * @throws IllegalStateException A worker failed.
+     * @throws InterruptedException  The waiting for the workers was interrupted.
+     */
+    public RollStatistics runForked(int processes) throws IOException, IllegalStateException, InterruptedException {
+        String java = ProcessHandle.current().info().command()
+                .orElse(System.getProperty("java.home") + File.separator + "bin" + File.separator + "java");
+        List<Process> workers = new ArrayList<>();
+        try {
+            for (long[] shard : getShards(processes)) {
+                List<String> command = new ArrayList<>(Arrays.asList(java, "-cp",
+                        System.getProperty("java.class.path"), ShardedSimulation.class.getName()));
+                command.addAll(spec.toArguments());
+                command.add(Long.toString(shard[0]));
+                command.add(Long.toString(shard[1]));
+                workers.add(new ProcessBuilder(command).redirectError(ProcessBuilder.Redirect.INHERIT).start());
+            }
+            RollStatistics result = new RollStatistics();
+            for (Process worker : workers) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(worker.getInputStream()))) {
+                    result.combine(RollStatistics.read(in));
+                }
+                int status = worker.waitFor();
+                if (status != 0) {
+                    throw new IllegalStateException("A simulation worker failed with status " + status);
+                }
+            }
+            return result;
+        } finally {
+            for (Process worker : workers) {
+                worker.destroy();
+            }
+        }
+    }
+
+    /**
+     * Run a shard of a simulation as a worker process.
+     *
+     * @param args The arguments of the specification followed by the first work
+     *             unit and the number of work units.
+     * @throws IOException The writing of the result failed.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: ShardedSimulation DICE COMBINATION TRIALS SEED UNIT_SIZE ALGORITHM"
+                    + " FIRST_UNIT UNIT_COUNT");
+            System.exit(2);
+        }
+        try {
+            List<String> arguments = Arrays.asList(args);
+            SimulationSpec spec = SimulationSpec.fromArguments(arguments.subList(0, args.length - 2));
+            RollStatistics result = new ShardedSimulation(spec).runShard(Long.parseLong(args[args.length - 2]),
+                    Long.parseLong(args[args.length - 1]));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(System.out));
+            result.write(out);
+            out.flush();
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.random.RandomGeneratorFactory;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import com.kautiainen.antti.rpgs.dice.model.CombinedDie;
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+
+/**
+ * Simulation specification defines a Monte Carlo simulation of a combined die.
+ *
+ * The dice are defined by the names accepted by {@link Die#of(String)}, so the
+ * specification can be passed to a worker process as command line arguments.
+ * The trials are split into work units of a fixed size, and each work unit
+ * uses its own non-overlapping substream of a jumpable random number generator.
+ * As the work units do not depend on the number of shards, the simulation
+ * result does not depend on it either.
+ */
+public class SimulationSpec {
+
+    /**
+     * The default number of trials of a work unit.
+     */
+    public static final long DEFAULT_UNIT_SIZE = 1L << 16;
+
+    /**
+     * The default jumpable random number generator algorithm.
+     */
+    public static final String DEFAULT_ALGORITHM = "Xoshiro256PlusPlus";
+
+    /**
+     * The combinations of the rolled values into the outcome of a trial.
+     */
+    public static enum Combination {
+        /**
+         * The sum of the values.
+         */
+        SUM,
+        /**
+         * The largest value.
+         */
+        MAX,
+        /**
+         * The smallest value.
+         */
+        MIN;
+
+        /**
+         * Combine two values.
+         *
+         * @param current The combination of the previous values.
+         * @param value   The combined value.
+         * @return The combination of the values.
+         */
+        public int combine(int current, int value) {
+            switch (this) {
+                case MAX -> {
+                    return Math.max(current, value);
+                }
+                case MIN -> {
+                    return Math.min(current, value);
+                }
+                default -> {
+                    return current + value;
+                }
+            }
+        }
+
+        /**
+         * Get the collector performing the combination.
+         *
+         * @return The collector combining integers.
+         */
+        public Collector<Integer, ?, Integer> getCollector() {
+            switch (this) {
+                case MAX -> {
+                    return Collectors.reducing(Integer.MIN_VALUE, Math::max);
+                }
+                case MIN -> {
+                    return Collectors.reducing(Integer.MAX_VALUE, Math::min);
+                }
+                default -> {
+                    return Collectors.reducing(0, Integer::sum);
+                }
+            }
+        }
+    }
+
+    /**
+     * The names of the dice.
+     */
+    private final List<String> dieNames;
+
+    /**
+     * The combination of the rolled values.
+     */
+    private final Combination combination;
+
+    /**
+     * The number of trials.
+     */
+    private final long trials;
+
+    /**
+     * The seed of the random number generator.
+     */
+    private final long seed;
+
+    /**
+     * The number of trials of a work unit.
+     */
+    private final long unitSize;
+
+    /**
+     * The name of the jumpable random number generator algorithm.
+     */
+    private final String algorithm;
+
+    /**
+     * Create a new simulation specification.
+     *
+     * @param dieNames    The names of the dice.
+     * @param combination The combination of the rolled values.
+     * @param trials      The number of trials.
+     * @param seed        The seed of the random number generator.
+     * @param unitSize    The number of trials of a work unit.
+     * @param algorithm   The name of a jumpable random number generator
+     *                    algorithm.
+     * @throws IllegalArgumentException Any die name was invalid, the trials was
+     *                                  negative, the unit size was not positive,
+     *                                  or the algorithm was not a jumpable
+     *                                  algorithm.
+     */
+    public SimulationSpec(List<String> dieNames, Combination combination, long trials, long seed, long unitSize,
+            String algorithm) throws IllegalArgumentException {
+        if (dieNames.isEmpty()) {
+            throw new IllegalArgumentException("No dice");
+        } else if (trials < 0) {
+            throw new IllegalArgumentException("Negative trials");
+        } else if (unitSize < 1) {
+            throw new IllegalArgumentException("The unit size must be positive");
+        } else if (!RandomGeneratorFactory.of(algorithm).isJumpable()) {
+            throw new IllegalArgumentException("Not a jumpable algorithm: " + algorithm);
+        }
+        for (String name : dieNames) {
+            if (name.contains(",") || !(Die.of(name) instanceof IndexedDie<Integer> die && die.getSideCount() > 0)) {
+                throw new IllegalArgumentException("Invalid die name: " + name);
+            }
+        }
+        this.dieNames = Collections.unmodifiableList(new ArrayList<>(dieNames));
+        this.combination = combination;
+        this.trials = trials;
+        this.seed = seed;
+        this.unitSize = unitSize;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Create a new simulation specification with the default unit size and
+     * algorithm.
+     *
+     * @param dieNames    The names of the dice.
+     * @param combination The combination of the rolled values.
+     * @param trials      The number of trials.
+     * @param seed        The seed of the random number generator.
+     * @throws IllegalArgumentException Any die name was invalid, or the trials
+     *                                  was negative.
+     */
+    public SimulationSpec(List<String> dieNames, Combination combination, long trials, long seed)
+            throws IllegalArgumentException {
+        this(dieNames, combination, trials, seed, DEFAULT_UNIT_SIZE, DEFAULT_ALGORITHM);
+    }
+
+    /**
+     * Get the names of the dice.
+     *
+     * @return The unmodifiable list of the die names.
+     */
+    public List<String> getDieNames() {
+        return dieNames;
+    }
+
+    /**
+     * Get the combination of the rolled values.
+     *
+     * @return The combination.
+     */
+    public Combination getCombination() {
+        return combination;
+    }
+
+    /**
+     * Get the number of trials.
+     *
+     * @return The number of trials.
+     */
+    public long getTrials() {
+        return trials;
+    }
+
+    /**
+     * Get the seed.
+     *
+     * @return The seed of the random number generator.
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Get the number of trials of a work unit.
+     *
+     * @return The work unit size.
+     */
+    public long getUnitSize() {
+        return unitSize;
+    }
+
+    /**
+     * Get the random number generator algorithm.
+     *
+     * @return The name of the jumpable algorithm.
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Get the number of work units.
+     *
+     * @return The number of work units.
+     */
+    public long getUnitCount() {
+        return (trials + unitSize - 1) / unitSize;
+    }
+
+    /**
+     * Get the number of trials of a work unit.
+     *
+     * @param unit The index of the work unit.
+     * @return The number of trials of the work unit.
+     */
+    public long getUnitTrials(long unit) {
+        return Math.max(0L, Math.min(unitSize, trials - unit * unitSize));
+    }
+
+    /**
+     * Create the dice of the specification.
+     *
+     * @return The list of the indexed dice.
+     */
+    public List<IndexedDie<Integer>> createDice() {
+        List<IndexedDie<Integer>> result = new ArrayList<>(dieNames.size());
+        for (String name : dieNames) {
+            result.add((IndexedDie<Integer>) Die.of(name));
+        }
+        return result;
+    }
+
+    /**
+     * Create the combined die simulated by the specification.
+     *
+     * @return The combined die.
+     */
+    public CombinedDie<Integer, Integer> toCombinedDie() {
+        return new CombinedDie<>(new ArrayList<Die<? extends Integer>>(createDice()), combination.getCollector());
+    }
+
+    /**
+     * Convert the specification into command line arguments.
+     *
+     * @return The arguments parsed by {@link #fromArguments(List)}.
+     */
+    public List<String> toArguments() {
+        return Arrays.asList(String.join(",", dieNames), combination.name(), Long.toString(trials),
+                Long.toString(seed), Long.toString(unitSize), algorithm);
+    }
+
+    /**
+     * Parse the specification from command line arguments.
+     *
+     * @param arguments The arguments created by {@link #toArguments()}.
+     * @return The parsed specification.
+     * @throws IllegalArgumentException The arguments were invalid.
+     */
+    public static SimulationSpec fromArguments(List<String> arguments) throws IllegalArgumentException {
+        if (arguments.size() != 6) {
+            throw new IllegalArgumentException("Invalid simulation arguments");
+        }
+        try {
+            return new SimulationSpec(Arrays.asList(arguments.get(0).split(",")),
+                    Combination.valueOf(arguments.get(1)), Long.parseLong(arguments.get(2)),
+                    Long.parseLong(arguments.get(3)), Long.parseLong(arguments.get(4)), arguments.get(5));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid simulation arguments", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.join(" ", toArguments());
+    }
+}
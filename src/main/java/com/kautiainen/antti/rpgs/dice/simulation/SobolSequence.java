@@ -0,0 +1,153 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+/**
+ * Sobol sequence is a low-discrepancy quasi-random sequence of points of the
+ * unit cube.
+ *
+ * The sequence is generated in the Gray code order with 32-bit direction
+ * numbers of the Joe-Kuo tables. A digital shift, an exclusive or of a random
+ * mask with each coordinate, randomizes the sequence while preserving its
+ * low-discrepancy structure.
+ */
+public class SobolSequence {
+
+    /**
+     * The maximal supported dimension.
+     */
+    public static final int MAX_DIMENSIONS = 16;
+
+    /**
+     * The number of bits of the coordinates.
+     */
+    private static final int BITS = 32;
+
+    /**
+     * The scale converting the 32-bit coordinates into the unit interval.
+     */
+    private static final double SCALE = 1.0 / (1L << BITS);
+
+    /**
+     * The primitive polynomials and initial direction numbers of the dimensions
+     * from the second onwards. Each row contains the degree, the coefficients of
+     * the polynomial, and the initial direction numbers.
+     */
+    private static final int[][] PARAMETERS = {
+            { 1, 0, 1 },
+            { 2, 1, 1, 3 },
+            { 3, 1, 1, 3, 1 },
+            { 3, 2, 1, 1, 1 },
+            { 4, 1, 1, 1, 3, 3 },
+            { 4, 4, 1, 3, 5, 13 },
+            { 5, 2, 1, 1, 5, 5, 17 },
+            { 5, 4, 1, 1, 5, 5, 5 },
+            { 5, 7, 1, 1, 7, 11, 19 },
+            { 5, 11, 1, 1, 5, 1, 1 },
+            { 5, 13, 1, 1, 1, 3, 11 },
+            { 5, 14, 1, 3, 5, 5, 31 },
+            { 6, 1, 1, 3, 3, 9, 7, 49 },
+            { 6, 13, 1, 1, 1, 15, 21, 21 },
+            { 6, 16, 1, 3, 1, 13, 27, 49 } };
+
+    /**
+     * The direction numbers of the dimensions.
+     */
+    private final int[][] directions;
+
+    /**
+     * The digital shifts of the dimensions.
+     */
+    private final int[] shifts;
+
+    /**
+     * The current unshifted point.
+     */
+    private final int[] current;
+
+    /**
+     * The index of the next point.
+     */
+    private long index = 0;
+
+    /**
+     * Create a new unshifted Sobol sequence.
+     *
+     * @param dimensions The dimension of the points.
+     * @throws IllegalArgumentException The dimension was not between 1 and
+     *                                  {@link #MAX_DIMENSIONS}.
+     */
+    public SobolSequence(int dimensions) throws IllegalArgumentException {
+        this(new int[dimensions]);
+    }
+
+    /**
+     * Create a new digitally shifted Sobol sequence.
+     *
+     * @param shifts The digital shifts of the dimensions. The length of the
+     *               shifts determines the dimension of the points.
+     * @throws IllegalArgumentException The dimension was not between 1 and
+     *                                  {@link #MAX_DIMENSIONS}.
+     */
+    public SobolSequence(int[] shifts) throws IllegalArgumentException {
+        int dimensions = shifts.length;
+        if (dimensions < 1 || dimensions > MAX_DIMENSIONS) {
+            throw new IllegalArgumentException("Sobol sequence supports 1 to " + MAX_DIMENSIONS + " dimensions");
+        }
+        this.shifts = shifts.clone();
+        this.current = new int[dimensions];
+        this.directions = new int[dimensions][BITS];
+        for (int bit = 0; bit < BITS; bit++) {
+            directions[0][bit] = 1 << (BITS - 1 - bit);
+        }
+        for (int dimension = 1; dimension < dimensions; dimension++) {
+            int[] parameters = PARAMETERS[dimension - 1];
+            int degree = parameters[0];
+            int coefficients = parameters[1];
+            int[] v = directions[dimension];
+            for (int bit = 0; bit < BITS; bit++) {
+                if (bit < degree) {
+                    v[bit] = parameters[2 + bit] << (BITS - 1 - bit);
+                } else {
+                    int value = v[bit - degree] ^ (v[bit - degree] >>> degree);
+                    for (int i = 1; i < degree; i++) {
+                        if (((coefficients >>> (degree - 1 - i)) & 1) != 0) {
+                            value ^= v[bit - i];
+                        }
+                    }
+                    v[bit] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the dimension of the points.
+     *
+     * @return The dimension of the points.
+     */
+    public int getDimensions() {
+        return current.length;
+    }
+
+    /**
+     * Generate the next point.
+     *
+     * @param point The array receiving the coordinates of the point in [0, 1).
+     * @throws IllegalStateException The sequence is exhausted.
+     */
+    public void next(double[] point) throws IllegalStateException {
+        if (index >= (1L << BITS)) {
+            throw new IllegalStateException("The Sobol sequence is exhausted");
+        }
+        if (index > 0) {
+            // Gray code order changes the direction of the lowest zero bit.
+            int bit = Long.numberOfTrailingZeros(~(index - 1));
+            for (int dimension = 0; dimension < current.length; dimension++) {
+                current[dimension] ^= directions[dimension][bit];
+            }
+        }
+        index++;
+        for (int dimension = 0; dimension < current.length; dimension++) {
+            point[dimension] = Integer.toUnsignedLong(current[dimension] ^ shifts[dimension]) * SCALE;
+        }
+    }
+}
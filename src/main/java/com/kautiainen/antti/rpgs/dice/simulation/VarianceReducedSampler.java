@@ -0,0 +1,368 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.random.RandomGenerator;
+import java.util.stream.Collector;
+import java.util.stream.Collectors;
+
+import com.kautiainen.antti.rpgs.dice.model.CombinedDie;
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+
+/**
+ * Variance reduced sampler estimates expected values and event probabilities
+ * of the outcomes of combined indexed dice.
+ *
+ * Every sample rolls each die once, and combines the rolled values with the
+ * combiner of the sampler. The {@link SamplingMode} determines how the rolls
+ * are generated, and how the standard error of the estimate is derived:
+ * <ul>
+ * <li>{@link SamplingMode#PLAIN} uses the sample standard deviation.</li>
+ * <li>{@link SamplingMode#STRATIFIED} combines the variances of the
+ * strata.</li>
+ * <li>{@link SamplingMode#ANTITHETIC} uses the standard deviation of the pair
+ * means.</li>
+ * <li>{@link SamplingMode#SOBOL} uses the standard deviation of the means of
+ * independently shifted replicates.</li>
+ * </ul>
+ *
+ * @param <T> The value type of the dice.
+ * @param <V> The value type of the combined outcome.
+ */
+public class VarianceReducedSampler<T, V> {
+
+    /**
+     * The number of randomly shifted replicates of the Sobol sampling.
+     */
+    public static final int SOBOL_REPLICATES = 16;
+
+    /**
+     * The sampled dice.
+     */
+    private final List<IndexedDie<? extends T>> dice;
+
+    /**
+     * The side counts of the dice.
+     */
+    private final int[] sideCounts;
+
+    /**
+     * The combiner of the rolled values.
+     */
+    private final Collector<? super T, ?, ? extends V> combiner;
+
+    /**
+     * Create a new sampler.
+     *
+     * @param dice     The sampled dice.
+     * @param combiner The combiner of the rolled values.
+     * @throws IllegalArgumentException The dice were empty, or any die had no
+     *                                  sides.
+     */
+    public VarianceReducedSampler(List<? extends IndexedDie<? extends T>> dice,
+            Collector<? super T, ?, ? extends V> combiner) throws IllegalArgumentException {
+        if (dice.isEmpty()) {
+            throw new IllegalArgumentException("No dice");
+        }
+        this.dice = new ArrayList<>(dice);
+        this.combiner = combiner;
+        this.sideCounts = new int[dice.size()];
+        for (int i = 0; i < sideCounts.length; i++) {
+            sideCounts[i] = this.dice.get(i).getSideCount();
+            if (sideCounts[i] < 1) {
+                throw new IllegalArgumentException("A die without sides");
+            }
+        }
+    }
+
+    /**
+     * Create a sampler of a combined die.
+     *
+     * @param <T> The value type of the members.
+     * @param <V> The value type of the combined die.
+     * @param die The sampled combined die.
+     * @return The sampler of the combined die.
+     * @throws IllegalArgumentException Any member of the combined die was not an
+     *                                  indexed die.
+     */
+    public static <T, V> VarianceReducedSampler<T, V> of(CombinedDie<T, V> die) throws IllegalArgumentException {
+        List<IndexedDie<? extends T>> members = new ArrayList<>(die.getDice().size());
+        for (Die<? extends T> member : die.getDice()) {
+            if (member instanceof IndexedDie<? extends T> indexed) {
+                members.add(indexed);
+            } else {
+                throw new IllegalArgumentException("Only indexed dice can be sampled");
+            }
+        }
+        return new VarianceReducedSampler<>(members, die.getCombiner());
+    }
+
+    /**
+     * Create a sampler of a single die.
+     *
+     * @param <T> The value type of the die.
+     * @param die The sampled die.
+     * @return The sampler of the die.
+     */
+    public static <T> VarianceReducedSampler<T, T> of(IndexedDie<T> die) {
+        return new VarianceReducedSampler<>(List.of(die),
+                Collectors.collectingAndThen(Collectors.toList(), (List<T> list) -> list.get(0)));
+    }
+
+    /**
+     * Get the number of sampled dice.
+     *
+     * @return The dimension of a sample.
+     */
+    public int getDimensions() {
+        return sideCounts.length;
+    }
+
+    /**
+     * Evaluate a function of the outcome of the given sides.
+     *
+     * @param <A>       The accumulator type of the combiner.
+     * @param combiner  The combiner.
+     * @param function  The evaluated function.
+     * @param sides     The side indices of the dice.
+     * @return The value of the function.
+     */
+    private <A> double evaluate(Collector<? super T, A, ? extends V> combiner, ToDoubleFunction<? super V> function,
+            int[] sides) {
+        Supplier<A> supplier = combiner.supplier();
+        BiConsumer<A, ? super T> accumulator = combiner.accumulator();
+        Function<A, ? extends V> finisher = combiner.finisher();
+        A container = supplier.get();
+        for (int i = 0; i < sides.length; i++) {
+            accumulator.accept(container, dice.get(i).getSide(sides[i]));
+        }
+        return function.applyAsDouble(finisher.apply(container));
+    }
+
+    /**
+     * Evaluate a function of the outcome of the given sides.
+     *
+     * @param function The evaluated function.
+     * @param sides    The side indices of the dice.
+     * @return The value of the function.
+     */
+    private double evaluate(ToDoubleFunction<? super V> function, int[] sides) {
+        return evaluate(combiner, function, sides);
+    }
+
+    /**
+     * Estimate the probability of an event.
+     *
+     * @param event   The event predicate of the outcome.
+     * @param samples The number of samples.
+     * @param mode    The sampling mode.
+     * @param random  The random source.
+     * @return The estimate of the probability of the event.
+     * @throws IllegalArgumentException The number of samples was too small for the
+     *                                  sampling mode, or the Sobol sampling had
+     *                                  too many dice.
+     */
+    public Estimate estimateProbability(Predicate<? super V> event, long samples, SamplingMode mode,
+            RandomGenerator random) throws IllegalArgumentException {
+        return estimate((V outcome) -> event.test(outcome) ? 1.0 : 0.0, samples, mode, random);
+    }
+
+    /**
+     * Estimate the expected value of a function of the outcome.
+     *
+     * @param function The function of the outcome.
+     * @param samples  The number of samples.
+     * @param mode     The sampling mode.
+     * @param random   The random source.
+     * @return The estimate of the expected value.
+     * @throws IllegalArgumentException The number of samples was too small for
+     *                                  the sampling mode, or the Sobol sampling
+     *                                  had too many dice.
+     */
+    public Estimate estimate(ToDoubleFunction<? super V> function, long samples, SamplingMode mode,
+            RandomGenerator random) throws IllegalArgumentException {
+        if (samples < 2) {
+            throw new IllegalArgumentException("At least two samples are required");
+        }
+        switch (mode) {
+            case STRATIFIED -> {
+                return estimateStratified(function, samples, random);
+            }
+            case ANTITHETIC -> {
+                return estimateAntithetic(function, samples, random);
+            }
+            case SOBOL -> {
+                return estimateSobol(function, samples, random);
+            }
+            default -> {
+                return estimatePlain(function, samples, random);
+            }
+        }
+    }
+
+    /**
+     * Estimate with independent random rolls.
+     *
+     * @param function The function of the outcome.
+     * @param samples  The number of samples.
+     * @param random   The random source.
+     * @return The estimate.
+     */
+    private Estimate estimatePlain(ToDoubleFunction<? super V> function, long samples, RandomGenerator random) {
+        int[] sides = new int[sideCounts.length];
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        for (long sample = 0; sample < samples; sample++) {
+            for (int i = 0; i < sides.length; i++) {
+                sides[i] = random.nextInt(sideCounts[i]);
+            }
+            double value = evaluate(function, sides);
+            sum += value;
+            sumOfSquares += value * value;
+        }
+        return new Estimate(sum / samples, standardErrorOfMean(sum, sumOfSquares, samples), samples,
+                SamplingMode.PLAIN);
+    }
+
+    /**
+     * Estimate with antithetic pairs of rolls.
+     *
+     * @param function The function of the outcome.
+     * @param samples  The number of samples.
+     * @param random   The random source.
+     * @return The estimate.
+     */
+    private Estimate estimateAntithetic(ToDoubleFunction<? super V> function, long samples,
+            RandomGenerator random) {
+        long pairs = samples / 2;
+        int[] sides = new int[sideCounts.length];
+        int[] mirrored = new int[sideCounts.length];
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        for (long pair = 0; pair < pairs; pair++) {
+            for (int i = 0; i < sides.length; i++) {
+                sides[i] = random.nextInt(sideCounts[i]);
+                mirrored[i] = sideCounts[i] - 1 - sides[i];
+            }
+            double value = (evaluate(function, sides) + evaluate(function, mirrored)) / 2;
+            sum += value;
+            sumOfSquares += value * value;
+        }
+        return new Estimate(sum / pairs, standardErrorOfMean(sum, sumOfSquares, pairs), 2 * pairs,
+                SamplingMode.ANTITHETIC);
+    }
+
+    /**
+     * Estimate with stratified sampling over the side combinations of the
+     * leading dice.
+     *
+     * The leading dice are the longest prefix of the dice with at most half as
+     * many side combinations as there are samples, so every stratum gets at least
+     * two samples.
+     *
+     * @param function The function of the outcome.
+     * @param samples  The number of samples.
+     * @param random   The random source.
+     * @return The estimate.
+     */
+    private Estimate estimateStratified(ToDoubleFunction<? super V> function, long samples,
+            RandomGenerator random) {
+        int stratified = 0;
+        long strata = 1;
+        while (stratified < sideCounts.length && strata * sideCounts[stratified] <= samples / 2) {
+            strata *= sideCounts[stratified];
+            stratified++;
+        }
+        int[] sides = new int[sideCounts.length];
+        double estimate = 0.0;
+        double variance = 0.0;
+        for (long stratum = 0; stratum < strata; stratum++) {
+            long remainder = stratum;
+            for (int i = 0; i < stratified; i++) {
+                sides[i] = (int) (remainder % sideCounts[i]);
+                remainder /= sideCounts[i];
+            }
+            long count = samples / strata + (stratum < samples % strata ? 1 : 0);
+            double sum = 0.0;
+            double sumOfSquares = 0.0;
+            for (long sample = 0; sample < count; sample++) {
+                for (int i = stratified; i < sides.length; i++) {
+                    sides[i] = random.nextInt(sideCounts[i]);
+                }
+                double value = evaluate(function, sides);
+                sum += value;
+                sumOfSquares += value * value;
+            }
+            double error = standardErrorOfMean(sum, sumOfSquares, count);
+            estimate += sum / count;
+            variance += error * error;
+        }
+        return new Estimate(estimate / strata, Math.sqrt(variance) / strata, samples, SamplingMode.STRATIFIED);
+    }
+
+    /**
+     * Estimate with randomly shifted replicates of the Sobol sequence.
+     *
+     * @param function The function of the outcome.
+     * @param samples  The number of samples.
+     * @param random   The random source of the digital shifts.
+     * @return The estimate.
+     * @throws IllegalArgumentException There were more dice than the Sobol
+     *                                  sequence supports, or fewer samples than
+     *                                  replicates.
+     */
+    private Estimate estimateSobol(ToDoubleFunction<? super V> function, long samples, RandomGenerator random)
+            throws IllegalArgumentException {
+        if (samples < SOBOL_REPLICATES) {
+            throw new IllegalArgumentException("At least " + SOBOL_REPLICATES + " samples are required");
+        }
+        long points = samples / SOBOL_REPLICATES;
+        int[] sides = new int[sideCounts.length];
+        double[] point = new double[sideCounts.length];
+        int[] shifts = new int[sideCounts.length];
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        for (int replicate = 0; replicate < SOBOL_REPLICATES; replicate++) {
+            for (int i = 0; i < shifts.length; i++) {
+                shifts[i] = random.nextInt();
+            }
+            SobolSequence sequence = new SobolSequence(shifts);
+            double replicateSum = 0.0;
+            for (long sample = 0; sample < points; sample++) {
+                sequence.next(point);
+                for (int i = 0; i < sides.length; i++) {
+                    sides[i] = Math.min(sideCounts[i] - 1, (int) (point[i] * sideCounts[i]));
+                }
+                replicateSum += evaluate(function, sides);
+            }
+            double mean = replicateSum / points;
+            sum += mean;
+            sumOfSquares += mean * mean;
+        }
+        return new Estimate(sum / SOBOL_REPLICATES, standardErrorOfMean(sum, sumOfSquares, SOBOL_REPLICATES),
+                points * SOBOL_REPLICATES, SamplingMode.SOBOL);
+    }
+
+    /**
+     * Get the standard error of a sample mean.
+     *
+     * @param sum          The sum of the sample values.
+     * @param sumOfSquares The sum of the squares of the sample values.
+     * @param count        The number of samples.
+     * @return The standard error of the mean, or infinity for a single sample.
+     */
+    private static double standardErrorOfMean(double sum, double sumOfSquares, long count) {
+        if (count < 2) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double mean = sum / count;
+        double variance = Math.max(0.0, (sumOfSquares - count * mean * mean) / (count - 1));
+        return Math.sqrt(variance / count);
+    }
+}
@@ -0,0 +1,118 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.IntConsumer;
+
+/**
+ * Concurrent roll statistics accumulates values into thread-local
+ * {@link RollStatistics}, and merges them on demand.
+ *
+ * Each accepting thread owns its own accumulator, so the rolling threads never
+ * contend with each other. The accumulators are only locked against the
+ * merging performed by {@link #snapshot()} and {@link #reset()}.
+ */
+public class ConcurrentRollStatistics implements IntConsumer {
+
+    /**
+     * The accumulator of a single thread.
+     */
+    private static final class Accumulator {
+
+        /**
+         * The statistics of the thread.
+         */
+        private final RollStatistics statistics = new RollStatistics();
+
+        /**
+         * Accept a value.
+         *
+         * @param value The accepted value.
+         */
+        synchronized void accept(int value) {
+            statistics.accept(value);
+        }
+
+        /**
+         * Accept all values of an array.
+         *
+         * @param values The accepted values.
+         */
+        synchronized void acceptAll(int[] values) {
+            statistics.acceptAll(values);
+        }
+
+        /**
+         * Merge the statistics of the accumulator into the given statistics.
+         *
+         * @param target The target of the merge.
+         * @param clear  Does the merge clear the accumulator.
+         */
+        synchronized void mergeInto(RollStatistics target, boolean clear) {
+            target.combine(statistics);
+            if (clear) {
+                statistics.clear();
+            }
+        }
+    }
+
+    /**
+     * The accumulators of all threads ever accepting values.
+     */
+    private final Queue<Accumulator> accumulators = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The accumulator of the current thread.
+     */
+    private final ThreadLocal<Accumulator> local = ThreadLocal.withInitial(() -> {
+        Accumulator result = new Accumulator();
+        accumulators.add(result);
+        return result;
+    });
+
+    /**
+     * Accept a value in the accumulator of the current thread.
+     *
+     * @param value The accepted value.
+     */
+    @Override
+    public void accept(int value) {
+        local.get().accept(value);
+    }
+
+    /**
+     * Accept all values of an array in the accumulator of the current thread.
+     * The batch acquires the accumulator only once.
+     *
+     * @param values The accepted values.
+     */
+    public void acceptAll(int[] values) {
+        local.get().acceptAll(values);
+    }
+
+    /**
+     * Merge the accumulators of all threads.
+     *
+     * @return The statistics of all values accepted so far.
+     */
+    public RollStatistics snapshot() {
+        RollStatistics result = new RollStatistics();
+        for (Accumulator accumulator : accumulators) {
+            accumulator.mergeInto(result, false);
+        }
+        return result;
+    }
+
+    /**
+     * Merge the accumulators of all threads, and clear them.
+     *
+     * @return The statistics of all values accepted since the previous reset.
+     */
+    public RollStatistics reset() {
+        RollStatistics result = new RollStatistics();
+        for (Accumulator accumulator : accumulators) {
+            accumulator.mergeInto(result, true);
+        }
+        return result;
+    }
+}
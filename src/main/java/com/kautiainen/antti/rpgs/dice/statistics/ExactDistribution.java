@@ -0,0 +1,223 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToDoubleFunction;
+
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+
+/**
+ * Exact distribution is the analytically derived probability distribution of
+ * the values of a die or a roll rule.
+ *
+ * The distribution is immutable. The values are kept in the order of their
+ * first appearance, which is the side order for the distribution of a die.
+ *
+ * @param <T> The value type.
+ */
+public final class ExactDistribution<T> {
+
+    /**
+     * The probabilities of the values.
+     */
+    private final Map<T, Double> probabilities;
+
+    /**
+     * Create a new distribution.
+     *
+     * @param probabilities The probabilities of the values. The map is not copied.
+     */
+    private ExactDistribution(Map<T, Double> probabilities) {
+        this.probabilities = probabilities;
+    }
+
+    /**
+     * Create the distribution of equally likely sides.
+     *
+     * @param <T>   The value type.
+     * @param sides The sides. A value appearing on several sides is as many times
+     *              as likely as a value appearing on a single side.
+     * @return The distribution of the sides.
+     * @throws IllegalArgumentException The sides were empty.
+     */
+    public static <T> ExactDistribution<T> of(Collection<? extends T> sides) throws IllegalArgumentException {
+        if (sides.isEmpty()) {
+            throw new IllegalArgumentException("No sides");
+        }
+        double probability = 1.0 / sides.size();
+        Map<T, Double> result = new LinkedHashMap<>();
+        for (T side : sides) {
+            result.merge(side, probability, Double::sum);
+        }
+        return new ExactDistribution<>(result);
+    }
+
+    /**
+     * Create the distribution of an indexed die.
+     *
+     * @param <T> The value type.
+     * @param die The die.
+     * @return The distribution of the sides of the die.
+     * @throws IllegalArgumentException The die had no sides.
+     */
+    public static <T> ExactDistribution<T> of(IndexedDie<? extends T> die) throws IllegalArgumentException {
+        return of(die.getSides());
+    }
+
+    /**
+     * Create a distribution from weights of the values.
+     *
+     * @param <T>     The value type.
+     * @param weights The non-negative weights of the values.
+     * @return The distribution with probabilities proportional to the weights.
+     * @throws IllegalArgumentException The weights were negative, or their sum
+     *                                  was not positive.
+     */
+    public static <T> ExactDistribution<T> ofWeights(Map<? extends T, ? extends Number> weights)
+            throws IllegalArgumentException {
+        double total = 0.0;
+        for (Number weight : weights.values()) {
+            if (weight.doubleValue() < 0.0) {
+                throw new IllegalArgumentException("Negative weight");
+            }
+            total += weight.doubleValue();
+        }
+        if (!(total > 0.0)) {
+            throw new IllegalArgumentException("The total weight was not positive");
+        }
+        Map<T, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<? extends T, ? extends Number> entry : weights.entrySet()) {
+            result.merge(entry.getKey(), entry.getValue().doubleValue() / total, Double::sum);
+        }
+        return new ExactDistribution<>(result);
+    }
+
+    /**
+     * Get the probabilities of the values.
+     *
+     * @return The unmodifiable map from the values to their probabilities.
+     */
+    public Map<T, Double> getProbabilities() {
+        return Collections.unmodifiableMap(probabilities);
+    }
+
+    /**
+     * Get the probability of a value.
+     *
+     * @param value The value.
+     * @return The probability of the value.
+     */
+    public double getProbability(T value) {
+        return probabilities.getOrDefault(value, 0.0);
+    }
+
+    /**
+     * Get the probability of the values fulfilling a condition.
+     *
+     * @param condition The condition of the values.
+     * @return The probability of a value fulfilling the condition.
+     */
+    public double getProbability(Predicate<? super T> condition) {
+        double result = 0.0;
+        for (Map.Entry<T, Double> entry : probabilities.entrySet()) {
+            if (condition.test(entry.getKey())) {
+                result += entry.getValue();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the expected value.
+     *
+     * @param mapper The function converting a value to a number.
+     * @return The expected value of the numbers of the values.
+     */
+    public double getExpectedValue(ToDoubleFunction<? super T> mapper) {
+        double result = 0.0;
+        for (Map.Entry<T, Double> entry : probabilities.entrySet()) {
+            result += entry.getValue() * mapper.applyAsDouble(entry.getKey());
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of distinct values.
+     *
+     * @return The number of values with a defined probability.
+     */
+    public int size() {
+        return probabilities.size();
+    }
+
+    /**
+     * Map the values of the distribution.
+     *
+     * @param <R>    The value type of the result.
+     * @param mapper The function mapping the values.
+     * @return The distribution of the mapped values.
+     */
+    public <R> ExactDistribution<R> map(Function<? super T, ? extends R> mapper) {
+        Map<R, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<T, Double> entry : probabilities.entrySet()) {
+            result.merge(mapper.apply(entry.getKey()), entry.getValue(), Double::sum);
+        }
+        return new ExactDistribution<>(result);
+    }
+
+    /**
+     * Combine the distribution with an independent distribution. With an integer
+     * sum as the operator, the combination is the convolution of the
+     * distributions.
+     *
+     * @param <U>      The value type of the other distribution.
+     * @param <R>      The value type of the result.
+     * @param other    The independent distribution.
+     * @param operator The operator combining the values.
+     * @return The distribution of the combined values.
+     */
+    public <U, R> ExactDistribution<R> combine(ExactDistribution<U> other,
+            BiFunction<? super T, ? super U, ? extends R> operator) {
+        Map<R, Double> result = new LinkedHashMap<>();
+        for (Map.Entry<T, Double> head : probabilities.entrySet()) {
+            for (Map.Entry<U, Double> tail : other.probabilities.entrySet()) {
+                result.merge(operator.apply(head.getKey(), tail.getKey()), head.getValue() * tail.getValue(),
+                        Double::sum);
+            }
+        }
+        return new ExactDistribution<>(result);
+    }
+
+    /**
+     * Create a distribution from probabilities computed by the statistics
+     * package.
+     *
+     * @param <T>           The value type.
+     * @param probabilities The probabilities of the values. The map is not copied.
+     * @return The distribution of the values.
+     */
+    static <T> ExactDistribution<T> wrap(Map<T, Double> probabilities) {
+        return new ExactDistribution<>(probabilities);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ExactDistribution<?> distribution
+                && probabilities.equals(distribution.probabilities);
+    }
+
+    @Override
+    public int hashCode() {
+        return probabilities.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return probabilities.toString();
+    }
+}
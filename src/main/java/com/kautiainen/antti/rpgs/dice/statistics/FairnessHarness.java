@@ -0,0 +1,458 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.random.RandomGenerator;
+import java.util.random.RandomGenerator.SplittableGenerator;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+
+/**
+ * Fairness harness rolls a die a large number of times in parallel, and tests
+ * whether the rolls are fair.
+ *
+ * The harness performs the chi-square goodness of fit test of the face
+ * frequencies, the lag one serial correlation test, and for each face the
+ * chi-square frequency test and the Wald-Wolfowitz runs test. The rolls are
+ * split into consecutive chunks rolled in parallel. The chunk tallies are
+ * merged in order, so the tests see the rolls as a single sequence.
+ *
+ * @param <T> The value type of the tested die.
+ */
+public class FairnessHarness<T> {
+
+    /**
+     * The default significance level.
+     */
+    public static final double DEFAULT_SIGNIFICANCE = 0.001;
+
+    /**
+     * The number of chunks per thread.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The tally of a consecutive sequence of rolls.
+     */
+    private static final class Tally {
+
+        /**
+         * The number of times each face was rolled.
+         */
+        private final long[] counts;
+
+        /**
+         * The number of times the indicator of each face changed.
+         */
+        private final long[] changes;
+
+        /**
+         * The number of rolls with an expected face.
+         */
+        private long rolls = 0;
+
+        /**
+         * The number of rolls with an unexpected face.
+         */
+        private long unexpected = 0;
+
+        /**
+         * The sum of the face indices.
+         */
+        private long sum = 0;
+
+        /**
+         * The sum of the squares of the face indices.
+         */
+        private long sumOfSquares = 0;
+
+        /**
+         * The sum of the products of consecutive face indices.
+         */
+        private long lagProducts = 0;
+
+        /**
+         * The first face index, or -1 for an empty tally.
+         */
+        private int first = -1;
+
+        /**
+         * The last face index, or -1 for an empty tally.
+         */
+        private int last = -1;
+
+        /**
+         * Create a new tally.
+         *
+         * @param faceCount The number of faces.
+         */
+        Tally(int faceCount) {
+            this.counts = new long[faceCount];
+            this.changes = new long[faceCount];
+        }
+
+        /**
+         * Accept a rolled face.
+         *
+         * @param face The index of the rolled face, or a negative value for an
+         *             unexpected face.
+         */
+        void accept(int face) {
+            if (face < 0) {
+                unexpected++;
+                return;
+            }
+            counts[face]++;
+            rolls++;
+            sum += face;
+            sumOfSquares += (long) face * face;
+            if (last >= 0) {
+                lagProducts += (long) last * face;
+                if (last != face) {
+                    changes[last]++;
+                    changes[face]++;
+                }
+            } else {
+                first = face;
+            }
+            last = face;
+        }
+
+        /**
+         * Append the tally of the following rolls.
+         *
+         * @param next The tally of the rolls following the rolls of this tally.
+         */
+        void append(Tally next) {
+            if (next.rolls > 0 && last >= 0) {
+                lagProducts += (long) last * next.first;
+                if (last != next.first) {
+                    changes[last]++;
+                    changes[next.first]++;
+                }
+            }
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += next.counts[i];
+                changes[i] += next.changes[i];
+            }
+            if (first < 0) {
+                first = next.first;
+            }
+            if (next.last >= 0) {
+                last = next.last;
+            }
+            rolls += next.rolls;
+            unexpected += next.unexpected;
+            sum += next.sum;
+            sumOfSquares += next.sumOfSquares;
+            lagProducts += next.lagProducts;
+        }
+    }
+
+    /**
+     * The tested die.
+     */
+    private final Die<? extends T> die;
+
+    /**
+     * The faces of the die.
+     */
+    private final List<T> faces;
+
+    /**
+     * The probabilities of the faces.
+     */
+    private final double[] probabilities;
+
+    /**
+     * The face index of the rolled values.
+     */
+    private final Map<T, Integer> faceIndices;
+
+    /**
+     * The random source used with indexed dice, or an undefined value to use the
+     * rolls of the die itself.
+     */
+    private final SplittableGenerator random;
+
+    /**
+     * Create a new fairness harness.
+     *
+     * @param die     The tested die.
+     * @param weights The relative weights of the faces of the die.
+     * @throws IllegalArgumentException The weights were empty or invalid.
+     */
+    public FairnessHarness(Die<? extends T> die, Map<? extends T, ? extends Number> weights)
+            throws IllegalArgumentException {
+        this(die, weights, null);
+    }
+
+    /**
+     * Create a new fairness harness.
+     *
+     * @param die     The tested die.
+     * @param weights The relative weights of the faces of the die.
+     * @param random  The random source of the rolls, or an undefined value to use
+     *                the rolls of the die.
+     * @throws IllegalArgumentException The weights were empty or invalid.
+     */
+    protected FairnessHarness(Die<? extends T> die, Map<? extends T, ? extends Number> weights,
+            SplittableGenerator random) throws IllegalArgumentException {
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("A die without faces");
+        }
+        this.die = die;
+        this.random = random;
+        this.faces = new ArrayList<>(weights.size());
+        this.probabilities = new double[weights.size()];
+        this.faceIndices = new HashMap<>();
+        double total = 0.0;
+        for (Map.Entry<? extends T, ? extends Number> entry : weights.entrySet()) {
+            double weight = entry.getValue().doubleValue();
+            if (!(weight >= 0.0) || Double.isInfinite(weight)) {
+                throw new IllegalArgumentException("Invalid face weight");
+            }
+            faceIndices.put(entry.getKey(), faces.size());
+            probabilities[faces.size()] = weight;
+            faces.add(entry.getKey());
+            total += weight;
+        }
+        if (!(total > 0.0)) {
+            throw new IllegalArgumentException("The face weights must not all be zero");
+        }
+        for (int i = 0; i < probabilities.length; i++) {
+            probabilities[i] /= total;
+        }
+    }
+
+    /**
+     * Create a fairness harness of an indexed die expecting all sides to be
+     * equally likely. The harness uses the own rolls of the die, which share
+     * the random source of {@link Math#random()} among the rolling threads by
+     * default. Use {@link #withRandom(SplittableGenerator)} to roll every chunk
+     * with its own generator.
+     *
+     * @param <T> The value type of the die.
+     * @param die The tested die.
+     * @return The fairness harness testing the die.
+     */
+    public static <T> FairnessHarness<T> of(IndexedDie<T> die) {
+        Map<T, Integer> weights = new LinkedHashMap<>();
+        for (T side : die.getSides()) {
+            weights.merge(side, 1, Integer::sum);
+        }
+        return new FairnessHarness<>(die, weights);
+    }
+
+    /**
+     * Create a fairness harness of a die expecting all given faces to be equally
+     * likely.
+     *
+     * @param <T>   The value type of the die.
+     * @param die   The tested die.
+     * @param faces The faces of the die.
+     * @return The fairness harness testing the die.
+     * @throws IllegalArgumentException The faces were empty.
+     */
+    public static <T> FairnessHarness<T> of(Die<? extends T> die, Collection<? extends T> faces)
+            throws IllegalArgumentException {
+        Map<T, Integer> weights = new LinkedHashMap<>();
+        for (T face : faces) {
+            weights.put(face, 1);
+        }
+        return new FairnessHarness<>(die, weights);
+    }
+
+    /**
+     * Create a harness rolling the indexed die with given random source instead of
+     * the own rolls of the die. Every chunk of rolls uses its own split of the
+     * random source.
+     *
+     * @param random The random source.
+     * @return The harness using the given random source.
+     * @throws UnsupportedOperationException The die is not an indexed die.
+     */
+    public FairnessHarness<T> withRandom(SplittableGenerator random) throws UnsupportedOperationException {
+        if (!(die instanceof IndexedDie)) {
+            throw new UnsupportedOperationException("Only indexed dice support random sources");
+        }
+        Map<T, Double> weights = new LinkedHashMap<>();
+        for (int i = 0; i < faces.size(); i++) {
+            weights.put(faces.get(i), probabilities[i]);
+        }
+        return new FairnessHarness<>(die, weights, random);
+    }
+
+    /**
+     * Get the faces of the tested die.
+     *
+     * @return The unmodifiable list of the faces.
+     */
+    public List<T> getFaces() {
+        return Collections.unmodifiableList(faces);
+    }
+
+    /**
+     * Test the die with all available processors and the default significance.
+     *
+     * @param rolls The number of rolls.
+     * @return The report of the tests.
+     * @throws IllegalArgumentException The number of rolls was less than two.
+     */
+    public FairnessReport<T> test(long rolls) throws IllegalArgumentException {
+        return test(rolls, Runtime.getRuntime().availableProcessors(), DEFAULT_SIGNIFICANCE);
+    }
+
+    /**
+     * Test the die.
+     *
+     * @param rolls        The number of rolls.
+     * @param parallelism  The number of rolling threads.
+     * @param significance The significance level of the tests.
+     * @return The report of the tests.
+     * @throws IllegalArgumentException The number of rolls was less than two, the
+     *                                  parallelism was not positive, or the
+     *                                  significance was not between 0 and 1.
+     */
+    public FairnessReport<T> test(long rolls, int parallelism, double significance)
+            throws IllegalArgumentException {
+        if (rolls < 2) {
+            throw new IllegalArgumentException("At least two rolls are required");
+        } else if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        } else if (!(significance > 0.0 && significance < 1.0)) {
+            throw new IllegalArgumentException("Invalid significance");
+        }
+        long start = System.nanoTime();
+        int chunkCount = (int) Math.min(rolls, (long) parallelism * CHUNKS_PER_THREAD);
+        List<Tally> tallies = new ArrayList<>(chunkCount);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism, (Runnable task) -> {
+            Thread result = new Thread(task, "dice-fairness");
+            result.setDaemon(true);
+            return result;
+        });
+        try {
+            List<Future<Tally>> futures = new ArrayList<>(chunkCount);
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                long length = rolls / chunkCount + (chunk < rolls % chunkCount ? 1 : 0);
+                RandomGenerator chunkRandom = random == null ? null : random.split();
+                futures.add(executor.submit(() -> rollChunk(length, chunkRandom)));
+            }
+            for (Future<Tally> future : futures) {
+                tallies.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("The fairness test was interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Rolling the die failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        Tally total = new Tally(faces.size());
+        for (Tally tally : tallies) {
+            total.append(tally);
+        }
+        return createReport(total, significance, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Roll a chunk of rolls.
+     *
+     * @param length      The number of rolls.
+     * @param chunkRandom The random source of the chunk, or an undefined value to
+     *                    use the rolls of the die.
+     * @return The tally of the rolls.
+     */
+    private Tally rollChunk(long length, RandomGenerator chunkRandom) {
+        Tally result = new Tally(faces.size());
+        if (chunkRandom != null) {
+            // The primitive path maps side indices directly to faces.
+            IndexedDie<? extends T> indexed = (IndexedDie<? extends T>) die;
+            int[] faceOfSide = new int[indexed.getSideCount()];
+            for (int i = 0; i < faceOfSide.length; i++) {
+                faceOfSide[i] = faceIndices.getOrDefault(indexed.getSide(i), -1);
+            }
+            for (long i = 0; i < length; i++) {
+                result.accept(faceOfSide[indexed.rollIndex(chunkRandom)]);
+            }
+        } else {
+            for (long i = 0; i < length; i++) {
+                result.accept(faceIndices.getOrDefault(die.roll(), -1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Create the report of the tally.
+     *
+     * @param tally        The tally of all rolls.
+     * @param significance The significance level.
+     * @param elapsed      The duration of the test.
+     * @return The fairness report.
+     */
+    private FairnessReport<T> createReport(Tally tally, double significance, Duration elapsed) {
+        long n = tally.rolls;
+        List<FairnessReport.FaceReport<T>> faceReports = new ArrayList<>(faces.size());
+        double chiSquare = 0.0;
+        int degreesOfFreedom = -1;
+        for (int face = 0; face < faces.size(); face++) {
+            double p = probabilities[face];
+            long observed = tally.counts[face];
+            double expected = n * p;
+            double frequencyPValue = 1.0;
+            if (p > 0.0) {
+                double delta = observed - expected;
+                chiSquare += delta * delta / expected;
+                degreesOfFreedom++;
+                if (p < 1.0) {
+                    frequencyPValue = StatisticalFunctions.chiSquarePValue(
+                            delta * delta / expected + delta * delta / (n - expected), 1);
+                }
+            } else if (observed > 0) {
+                frequencyPValue = 0.0;
+            }
+            long other = n - observed;
+            long runs = tally.changes[face] + 1;
+            double runsPValue = 1.0;
+            if (observed > 0 && other > 0 && n > 1) {
+                double product = 2.0 * observed * other;
+                double mean = product / n + 1;
+                double variance = product * (product - n) / ((double) n * n * (n - 1));
+                runsPValue = variance > 0 ? StatisticalFunctions.normalTwoSidedPValue((runs - mean)
+                        / Math.sqrt(variance)) : 1.0;
+            }
+            faceReports.add(new FairnessReport.FaceReport<>(faces.get(face), observed, expected, frequencyPValue,
+                    runs, runsPValue));
+        }
+        double chiSquarePValue = degreesOfFreedom > 0 ? StatisticalFunctions.chiSquarePValue(chiSquare,
+                degreesOfFreedom) : 1.0;
+
+        double serialCorrelation = 0.0;
+        double serialCorrelationPValue = 1.0;
+        if (n > 1) {
+            double mean = (double) tally.sum / n;
+            double variance = (double) tally.sumOfSquares / n - mean * mean;
+            if (variance > 0) {
+                serialCorrelation = ((double) tally.lagProducts / (n - 1) - mean * mean) / variance;
+                serialCorrelationPValue = StatisticalFunctions.normalTwoSidedPValue(serialCorrelation
+                        * Math.sqrt(n));
+            }
+        }
+        return new FairnessReport<>(n + tally.unexpected, tally.unexpected, faceReports, chiSquare,
+                Math.max(0, degreesOfFreedom), chiSquarePValue, serialCorrelation, serialCorrelationPValue,
+                significance, elapsed);
+    }
+}
@@ -0,0 +1,334 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Fairness report contains the results of the statistical tests of a die
+ * performed by the {@link FairnessHarness}.
+ *
+ * @param <T> The value type of the tested die.
+ */
+public class FairnessReport<T> {
+
+    /**
+     * The test results of a single face.
+     *
+     * @param <T> The value type of the face.
+     */
+    public static class FaceReport<T> {
+
+        /**
+         * The face.
+         */
+        private final T face;
+
+        /**
+         * The number of times the face was rolled.
+         */
+        private final long observed;
+
+        /**
+         * The expected number of times the face is rolled.
+         */
+        private final double expected;
+
+        /**
+         * The p-value of the chi-square test of the face frequency.
+         */
+        private final double frequencyPValue;
+
+        /**
+         * The number of runs of the face and other faces.
+         */
+        private final long runs;
+
+        /**
+         * The p-value of the runs test of the face.
+         */
+        private final double runsPValue;
+
+        /**
+         * Create a new face report.
+         *
+         * @param face            The face.
+         * @param observed        The number of times the face was rolled.
+         * @param expected        The expected number of times the face is rolled.
+         * @param frequencyPValue The p-value of the frequency test.
+         * @param runs            The number of runs.
+         * @param runsPValue      The p-value of the runs test.
+         */
+        public FaceReport(T face, long observed, double expected, double frequencyPValue, long runs,
+                double runsPValue) {
+            this.face = face;
+            this.observed = observed;
+            this.expected = expected;
+            this.frequencyPValue = frequencyPValue;
+            this.runs = runs;
+            this.runsPValue = runsPValue;
+        }
+
+        /**
+         * Get the face.
+         *
+         * @return The face of the report.
+         */
+        public T getFace() {
+            return face;
+        }
+
+        /**
+         * Get the observed frequency.
+         *
+         * @return The number of times the face was rolled.
+         */
+        public long getObserved() {
+            return observed;
+        }
+
+        /**
+         * Get the expected frequency.
+         *
+         * @return The expected number of times the face is rolled.
+         */
+        public double getExpected() {
+            return expected;
+        }
+
+        /**
+         * Get the p-value of the chi-square test of the face frequency.
+         *
+         * @return The p-value of the frequency test.
+         */
+        public double getFrequencyPValue() {
+            return frequencyPValue;
+        }
+
+        /**
+         * Get the number of runs of the face and other faces.
+         *
+         * @return The number of runs.
+         */
+        public long getRuns() {
+            return runs;
+        }
+
+        /**
+         * Get the p-value of the Wald-Wolfowitz runs test of the face.
+         *
+         * @return The p-value of the runs test.
+         */
+        public double getRunsPValue() {
+            return runsPValue;
+        }
+    }
+
+    /**
+     * The number of rolls.
+     */
+    private final long rolls;
+
+    /**
+     * The number of rolls with an unexpected face.
+     */
+    private final long unexpected;
+
+    /**
+     * The reports of the faces.
+     */
+    private final List<FaceReport<T>> faces;
+
+    /**
+     * The chi-square statistic of the face frequencies.
+     */
+    private final double chiSquare;
+
+    /**
+     * The degrees of freedom of the chi-square statistic.
+     */
+    private final int degreesOfFreedom;
+
+    /**
+     * The p-value of the chi-square test.
+     */
+    private final double chiSquarePValue;
+
+    /**
+     * The lag one serial correlation of the rolls.
+     */
+    private final double serialCorrelation;
+
+    /**
+     * The p-value of the serial correlation test.
+     */
+    private final double serialCorrelationPValue;
+
+    /**
+     * The significance level of the tests.
+     */
+    private final double significance;
+
+    /**
+     * The duration of the rolling and testing.
+     */
+    private final Duration elapsed;
+
+    /**
+     * Create a new fairness report.
+     *
+     * @param rolls                   The number of rolls.
+     * @param unexpected              The number of unexpected faces.
+     * @param faces                   The face reports.
+     * @param chiSquare               The chi-square statistic.
+     * @param degreesOfFreedom        The degrees of freedom of the statistic.
+     * @param chiSquarePValue         The p-value of the chi-square test.
+     * @param serialCorrelation       The serial correlation.
+     * @param serialCorrelationPValue The p-value of the serial correlation test.
+     * @param significance            The significance level of the tests.
+     * @param elapsed                 The duration of the test.
+     */
+    public FairnessReport(long rolls, long unexpected, List<FaceReport<T>> faces, double chiSquare,
+            int degreesOfFreedom, double chiSquarePValue, double serialCorrelation, double serialCorrelationPValue,
+            double significance, Duration elapsed) {
+        this.rolls = rolls;
+        this.unexpected = unexpected;
+        this.faces = Collections.unmodifiableList(faces);
+        this.chiSquare = chiSquare;
+        this.degreesOfFreedom = degreesOfFreedom;
+        this.chiSquarePValue = chiSquarePValue;
+        this.serialCorrelation = serialCorrelation;
+        this.serialCorrelationPValue = serialCorrelationPValue;
+        this.significance = significance;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * Get the number of rolls.
+     *
+     * @return The number of rolls.
+     */
+    public long getRolls() {
+        return rolls;
+    }
+
+    /**
+     * Get the number of rolls with a face not belonging to the die.
+     *
+     * @return The number of unexpected faces.
+     */
+    public long getUnexpected() {
+        return unexpected;
+    }
+
+    /**
+     * Get the face reports.
+     *
+     * @return The unmodifiable list of the reports of the faces.
+     */
+    public List<FaceReport<T>> getFaces() {
+        return faces;
+    }
+
+    /**
+     * Get the chi-square statistic of the face frequencies.
+     *
+     * @return The chi-square statistic.
+     */
+    public double getChiSquare() {
+        return chiSquare;
+    }
+
+    /**
+     * Get the degrees of freedom of the chi-square statistic.
+     *
+     * @return The degrees of freedom.
+     */
+    public int getDegreesOfFreedom() {
+        return degreesOfFreedom;
+    }
+
+    /**
+     * Get the p-value of the chi-square test.
+     *
+     * @return The p-value of the chi-square test.
+     */
+    public double getChiSquarePValue() {
+        return chiSquarePValue;
+    }
+
+    /**
+     * Get the lag one serial correlation.
+     *
+     * @return The serial correlation of the consecutive rolls.
+     */
+    public double getSerialCorrelation() {
+        return serialCorrelation;
+    }
+
+    /**
+     * Get the p-value of the serial correlation test.
+     *
+     * @return The p-value of the serial correlation test.
+     */
+    public double getSerialCorrelationPValue() {
+        return serialCorrelationPValue;
+    }
+
+    /**
+     * Get the significance level.
+     *
+     * @return The significance level of the tests.
+     */
+    public double getSignificance() {
+        return significance;
+    }
+
+    /**
+     * Get the duration of the test.
+     *
+     * @return The duration of rolling and testing.
+     */
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * Did the die pass the tests.
+     *
+     * The overall chi-square and serial correlation tests are compared with the
+     * significance level. The face tests are compared with the Bonferroni
+     * corrected significance level, the significance level divided by the number
+     * of the faces.
+     *
+     * @return True, if and only if the die passed all tests.
+     */
+    public boolean isPassed() {
+        if (unexpected > 0 || chiSquarePValue < significance || serialCorrelationPValue < significance) {
+            return false;
+        }
+        double faceSignificance = significance / Math.max(1, faces.size());
+        return faces.stream().allMatch(
+                face -> face.getFrequencyPValue() >= faceSignificance && face.getRunsPValue() >= faceSignificance);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+        result.append(String.format("Fairness %s: %d rolls in %d ms (significance %g)%n", isPassed() ? "PASSED"
+                : "FAILED", rolls, elapsed.toMillis(), significance));
+        if (unexpected > 0) {
+            result.append(String.format("  Unexpected faces: %d%n", unexpected));
+        }
+        result.append(String.format("  Chi-square: %.4f (df %d), p = %.6g%n", chiSquare, degreesOfFreedom,
+                chiSquarePValue));
+        result.append(String.format("  Serial correlation: %.6g, p = %.6g%n", serialCorrelation,
+                serialCorrelationPValue));
+        for (FaceReport<T> face : faces) {
+            result.append(String.format("  Face %s: observed %d, expected %.1f, p = %.6g; runs %d, p = %.6g%n",
+                    face.getFace(), face.getObserved(), face.getExpected(), face.getFrequencyPValue(),
+                    face.getRuns(), face.getRunsPValue()));
+        }
+        return result.toString();
+    }
+}
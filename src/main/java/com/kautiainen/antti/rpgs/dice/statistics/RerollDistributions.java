@@ -0,0 +1,268 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.Supplier;
+import java.util.stream.Collector;
+
+import com.kautiainen.antti.rpgs.dice.model.CombinedDie;
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+
+/**
+ * Reroll distributions derives and memoizes the exact distributions of reroll
+ * policies.
+ *
+ * The distributions are cached per die and policy. The dice are weakly
+ * referenced, so the cached distributions of a die are released with the die.
+ * Only equal policies share a cached distribution. As the policies with
+ * conditions or comparators are equal only if their conditions or comparators
+ * are equal, a policy created anew for every request never shares one. The
+ * cache of a die keeps at most {@link #MAX_CACHED_POLICIES} least recently used
+ * policies, so such policies do not grow the cache without bound.
+ */
+public final class RerollDistributions {
+
+    /**
+     * The maximal number of side combinations enumerated for a combined die.
+     */
+    public static final long MAX_ENUMERATION = 1L << 24;
+
+    /**
+     * The maximal number of policies whose distributions are cached per die.
+     */
+    public static final int MAX_CACHED_POLICIES = 64;
+
+    /**
+     * The distributions of single dice.
+     */
+    private static final Map<Die<?>, Map<RerollPolicy<?>, ExactDistribution<?>>> DIE_CACHE = new WeakHashMap<>();
+
+    /**
+     * The distributions of combined dice.
+     */
+    private static final Map<Die<?>, Map<RerollPolicy<?>, ExactDistribution<?>>> COMBINED_CACHE = new WeakHashMap<>();
+
+    /**
+     * The distributions of the sums of combined dice.
+     */
+    private static final Map<Die<?>, Map<RerollPolicy<?>, ExactDistribution<?>>> SUM_CACHE = new WeakHashMap<>();
+
+    /**
+     * The utility class has no instances.
+     */
+    private RerollDistributions() {
+    }
+
+    /**
+     * Create the cache of the distributions of a die. The cache evicts the least
+     * recently used policy when it exceeds {@link #MAX_CACHED_POLICIES} policies.
+     *
+     * @return The empty cache of the distributions of the policies.
+     */
+    private static Map<RerollPolicy<?>, ExactDistribution<?>> createPolicyCache() {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RerollPolicy<?>, ExactDistribution<?>> eldest) {
+                return size() > MAX_CACHED_POLICIES;
+            }
+        };
+    }
+
+    /**
+     * Get the number of the policies cached for a die.
+     *
+     * @param die The die.
+     * @return The number of the policies whose distributions of the die are
+     *         cached.
+     */
+    static int getCachedPolicyCount(Die<?> die) {
+        int result = 0;
+        for (Map<Die<?>, Map<RerollPolicy<?>, ExactDistribution<?>>> cache : List.of(DIE_CACHE, COMBINED_CACHE,
+                SUM_CACHE)) {
+            synchronized (cache) {
+                result += cache.getOrDefault(die, Map.of()).size();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get a cached distribution, or compute and cache it.
+     *
+     * @param <T>     The value type of the distribution.
+     * @param cache   The cache of the distributions.
+     * @param die     The die.
+     * @param policy  The policy.
+     * @param compute The function computing the distribution.
+     * @return The distribution of the die with the policy.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> ExactDistribution<T> cached(Map<Die<?>, Map<RerollPolicy<?>, ExactDistribution<?>>> cache,
+            Die<?> die, RerollPolicy<?> policy, Supplier<ExactDistribution<T>> compute) {
+        synchronized (cache) {
+            ExactDistribution<?> result = cache.getOrDefault(die, Map.of()).get(policy);
+            if (result != null) {
+                return (ExactDistribution<T>) result;
+            }
+        }
+        // The distribution is computed outside the lock, so a concurrent request
+        // may compute it again. Both computations yield an equal distribution.
+        ExactDistribution<T> result = compute.get();
+        synchronized (cache) {
+            cache.computeIfAbsent(die, key -> createPolicyCache()).putIfAbsent(policy, result);
+        }
+        return result;
+    }
+
+    /**
+     * Get the distribution of an indexed die.
+     *
+     * @param <T> The value type of the die.
+     * @param die The die.
+     * @return The distribution of a single roll of the die.
+     */
+    public static <T> ExactDistribution<T> of(IndexedDie<T> die) {
+        return of(die, RerollPolicy.none());
+    }
+
+    /**
+     * Get the distribution of an indexed die rolled with a reroll policy.
+     *
+     * @param <T>    The value type of the die.
+     * @param die    The die.
+     * @param policy The reroll policy.
+     * @return The distribution of the value determined by the policy.
+     */
+    public static <T> ExactDistribution<T> of(IndexedDie<T> die, RerollPolicy<T> policy) {
+        return cached(DIE_CACHE, die, policy, () -> policy.apply(ExactDistribution.of(die)));
+    }
+
+    /**
+     * Get the member distributions of a combined die.
+     *
+     * @param <T>    The value type of the members.
+     * @param die    The combined die.
+     * @param policy The reroll policy of the members.
+     * @return The list of the distributions of the members.
+     * @throws IllegalArgumentException Some member was not an indexed die.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<ExactDistribution<T>> getMemberDistributions(CombinedDie<T, ?> die,
+            RerollPolicy<T> policy) throws IllegalArgumentException {
+        List<ExactDistribution<T>> result = new ArrayList<>(die.getDice().size());
+        for (Die<? extends T> member : die.getDice()) {
+            if (!(member instanceof IndexedDie<?>)) {
+                throw new IllegalArgumentException("The member " + member + " is not an indexed die");
+            }
+            result.add(of((IndexedDie<T>) member, policy));
+        }
+        return result;
+    }
+
+    /**
+     * Get the distribution of a combined die whose members are rolled with a
+     * reroll policy. The distribution is derived by enumerating all combinations
+     * of the member values, and combining each combination with the combiner of
+     * the combined die.
+     *
+     * @param <T>    The value type of the members.
+     * @param <V>    The value type of the combined die.
+     * @param die    The combined die of indexed dice.
+     * @param policy The reroll policy of the members.
+     * @return The distribution of the combined value.
+     * @throws IllegalArgumentException Some member was not an indexed die, or
+     *                                  there were more than
+     *                                  {@link #MAX_ENUMERATION} combinations.
+     */
+    public static <T, V> ExactDistribution<V> of(CombinedDie<T, V> die, RerollPolicy<T> policy)
+            throws IllegalArgumentException {
+        return cached(COMBINED_CACHE, die, policy, () -> enumerate(getMemberDistributions(die, policy),
+                die.getCombiner()));
+    }
+
+    /**
+     * Get the distribution of the sum of a combined die of integer dice whose
+     * members are rolled with a reroll policy. The distribution is the
+     * convolution of the member distributions, and it does not depend on the
+     * combiner of the combined die.
+     *
+     * @param die    The combined die of indexed integer dice.
+     * @param policy The reroll policy of the members.
+     * @return The distribution of the sum of the members.
+     * @throws IllegalArgumentException Some member was not an indexed die.
+     */
+    public static ExactDistribution<Integer> ofSum(CombinedDie<Integer, ?> die, RerollPolicy<Integer> policy)
+            throws IllegalArgumentException {
+        return cached(SUM_CACHE, die, policy, () -> {
+            ExactDistribution<Integer> result = ExactDistribution.of(List.of(0));
+            for (ExactDistribution<Integer> member : getMemberDistributions(die, policy)) {
+                result = result.combine(member, Integer::sum);
+            }
+            return result;
+        });
+    }
+
+    /**
+     * Enumerate the combinations of independent distributions.
+     *
+     * @param <T>      The value type of the members.
+     * @param <V>      The value type of the combination.
+     * @param members  The distributions of the members.
+     * @param combiner The collector combining the member values.
+     * @return The distribution of the combined value.
+     * @throws IllegalArgumentException There were more than
+     *                                  {@link #MAX_ENUMERATION} combinations.
+     */
+    @SuppressWarnings("unchecked")
+    static <T, V> ExactDistribution<V> enumerate(List<ExactDistribution<T>> members,
+            Collector<? super T, ?, ? extends V> combiner) throws IllegalArgumentException {
+        int size = members.size();
+        Object[][] values = new Object[size][];
+        double[][] probabilities = new double[size][];
+        long combinations = 1;
+        for (int i = 0; i < size; i++) {
+            Map<T, Double> member = members.get(i).getProbabilities();
+            values[i] = member.keySet().toArray();
+            probabilities[i] = member.values().stream().mapToDouble(Double::doubleValue).toArray();
+            combinations *= values[i].length;
+            if (combinations > MAX_ENUMERATION) {
+                throw new IllegalArgumentException("Too many combinations to enumerate");
+            }
+        }
+        Map<V, Double> result = new LinkedHashMap<>();
+        int[] indices = new int[size];
+        List<T> combination = new ArrayList<>(size);
+        for (long n = 0; n < combinations; n++) {
+            combination.clear();
+            double probability = 1.0;
+            for (int i = 0; i < size; i++) {
+                combination.add((T) values[i][indices[i]]);
+                probability *= probabilities[i][indices[i]];
+            }
+            result.merge(combination.stream().collect(combiner), probability, Double::sum);
+            for (int i = size - 1; i >= 0 && ++indices[i] == values[i].length; i--) {
+                indices[i] = 0;
+            }
+        }
+        return ExactDistribution.wrap(result);
+    }
+
+    /**
+     * Remove all cached distributions.
+     */
+    public static void clearCache() {
+        for (Map<Die<?>, Map<RerollPolicy<?>, ExactDistribution<?>>> cache : List.of(DIE_CACHE, COMBINED_CACHE,
+                SUM_CACHE)) {
+            synchronized (cache) {
+                cache.clear();
+            }
+        }
+    }
+}
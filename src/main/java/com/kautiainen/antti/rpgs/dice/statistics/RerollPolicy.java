@@ -0,0 +1,374 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Predicate;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.RerollCombiner;
+import com.kautiainen.antti.rpgs.dice.model.RerollHistory;
+import com.kautiainen.antti.rpgs.dice.model.RerolledDieResult;
+
+/**
+ * Reroll policy is a rule determining the value of a die from its rerolls.
+ *
+ * A policy both rolls a die according to the rule, and derives the exact
+ * distribution of the rule from the distribution of a single roll. The policies
+ * are values: policies with equal parameters are equal. Conditions and
+ * comparators are compared with their own equality, which is the identity for
+ * lambdas, so a policy should be created once and reused. Only equal policies
+ * share the distributions memoized by {@link RerollDistributions}.
+ *
+ * @param <T> The value type of the die.
+ */
+public interface RerollPolicy<T> {
+
+    /**
+     * Derive the distribution of the policy.
+     *
+     * @param distribution The distribution of a single roll.
+     * @return The distribution of the value determined by the policy.
+     */
+    public ExactDistribution<T> apply(ExactDistribution<T> distribution);
+
+    /**
+     * Roll a die according to the policy.
+     *
+     * @param die The rolled die.
+     * @return The rerolled result whose value is the value determined by the
+     *         policy. The history of the result keeps at most
+     *         {@link #HISTORY_WINDOW} most recent rolls.
+     */
+    public RerolledDieResult<T> roll(Die<? extends T> die);
+
+    /**
+     * The maximal number of rolls kept in the history of a rolled result.
+     */
+    public static final int HISTORY_WINDOW = 16;
+
+    /**
+     * Create a policy without rerolls.
+     *
+     * @param <T> The value type of the die.
+     * @return The policy keeping the single roll.
+     */
+    static <T> RerollPolicy<T> none() {
+        return new RerollUntil<>(RerollUntil.ACCEPT_ALL, 0);
+    }
+
+    /**
+     * Create a policy rerolling once the values fulfilling a condition.
+     *
+     * @param <T>       The value type of the die.
+     * @param condition The condition of the rerolled values.
+     * @return The policy keeping the reroll of the first roll fulfilling the
+     *         condition.
+     */
+    static <T> RerollPolicy<T> rerollOnce(Predicate<? super T> condition) {
+        return new RerollOnce<>(condition);
+    }
+
+    /**
+     * Create a policy rerolling until an accepted value.
+     *
+     * @param <T>        The value type of the die.
+     * @param accepted   The condition of the accepted values.
+     * @param maxRerolls The maximal number of rerolls.
+     * @return The policy keeping the first accepted roll, or the last roll.
+     * @throws IllegalArgumentException The maximal number of rerolls was
+     *                                  negative.
+     */
+    static <T> RerollPolicy<T> rerollUntil(Predicate<? super T> accepted, int maxRerolls)
+            throws IllegalArgumentException {
+        return new RerollUntil<>(accepted, maxRerolls);
+    }
+
+    /**
+     * Create a policy keeping the best of several rolls.
+     *
+     * @param <T>        The value type of the die.
+     * @param count      The number of rolls.
+     * @param comparator The comparator of the values.
+     * @return The policy keeping the best roll.
+     * @throws IllegalArgumentException The count was not positive.
+     */
+    static <T> RerollPolicy<T> keepBest(int count, Comparator<? super T> comparator)
+            throws IllegalArgumentException {
+        return new KeepOf<>(count, comparator, true);
+    }
+
+    /**
+     * Create a policy keeping the worst of several rolls.
+     *
+     * @param <T>        The value type of the die.
+     * @param count      The number of rolls.
+     * @param comparator The comparator of the values.
+     * @return The policy keeping the worst roll.
+     * @throws IllegalArgumentException The count was not positive.
+     */
+    static <T> RerollPolicy<T> keepWorst(int count, Comparator<? super T> comparator)
+            throws IllegalArgumentException {
+        return new KeepOf<>(count, comparator, false);
+    }
+
+    /**
+     * Create a policy keeping the best of several rolls in the natural order.
+     *
+     * @param <T>   The value type of the die.
+     * @param count The number of rolls.
+     * @return The policy keeping the largest roll.
+     * @throws IllegalArgumentException The count was not positive.
+     */
+    static <T extends Comparable<? super T>> RerollPolicy<T> keepBest(int count) throws IllegalArgumentException {
+        return keepBest(count, Comparator.naturalOrder());
+    }
+
+    /**
+     * Create a policy keeping the worst of several rolls in the natural order.
+     *
+     * @param <T>   The value type of the die.
+     * @param count The number of rolls.
+     * @return The policy keeping the smallest roll.
+     * @throws IllegalArgumentException The count was not positive.
+     */
+    static <T extends Comparable<? super T>> RerollPolicy<T> keepWorst(int count) throws IllegalArgumentException {
+        return keepWorst(count, Comparator.naturalOrder());
+    }
+
+    /**
+     * Policy rerolling until an accepted value, or until the maximal number of
+     * rerolls is reached.
+     *
+     * @param <T> The value type of the die.
+     */
+    public static class RerollUntil<T> implements RerollPolicy<T> {
+
+        /**
+         * The condition accepting all values.
+         */
+        static final Predicate<Object> ACCEPT_ALL = value -> true;
+
+        /**
+         * The condition tested by the policy.
+         */
+        private final Predicate<? super T> condition;
+
+        /**
+         * The maximal number of rerolls.
+         */
+        private final int maxRerolls;
+
+        /**
+         * Create a new reroll until policy.
+         *
+         * @param accepted   The condition of the accepted values.
+         * @param maxRerolls The maximal number of rerolls.
+         * @throws IllegalArgumentException The maximal number of rerolls was
+         *                                  negative.
+         */
+        public RerollUntil(Predicate<? super T> accepted, int maxRerolls) throws IllegalArgumentException {
+            if (maxRerolls < 0) {
+                throw new IllegalArgumentException("Negative maximal number of rerolls");
+            }
+            this.condition = Objects.requireNonNull(accepted);
+            this.maxRerolls = maxRerolls;
+        }
+
+        /**
+         * Test whether a value is accepted.
+         *
+         * @param value The tested value.
+         * @return True, if and only if the value is not rerolled.
+         */
+        protected boolean isAccepted(T value) {
+            return condition.test(value);
+        }
+
+        /**
+         * Get the maximal number of rerolls.
+         *
+         * @return The maximal number of rerolls.
+         */
+        public int getMaxRerolls() {
+            return maxRerolls;
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * Each roll before the last one ends the rerolls with the probability of
+         * the accepted values, and the last roll is kept regardless of its value.
+         * The probabilities of the accepted values form a geometric series, so
+         * the distribution is derived in constant time regardless of the maximal
+         * number of rerolls.
+         */
+        @Override
+        public ExactDistribution<T> apply(ExactDistribution<T> distribution) {
+            Map<T, Double> probabilities = distribution.getProbabilities();
+            double rejected = distribution.getProbability((T value) -> !isAccepted(value));
+            double last = Math.pow(rejected, maxRerolls);
+            double accepted = (rejected < 1.0 ? (1.0 - last) / (1.0 - rejected) : 0.0);
+            Map<T, Double> result = new LinkedHashMap<>();
+            for (Map.Entry<T, Double> entry : probabilities.entrySet()) {
+                double weight = (isAccepted(entry.getKey()) ? accepted + last : last);
+                result.put(entry.getKey(), weight * entry.getValue());
+            }
+            return ExactDistribution.wrap(result);
+        }
+
+        @Override
+        public RerolledDieResult<T> roll(Die<? extends T> die) {
+            RerolledDieResult<T> result = new RerolledDieResult<>(die, RerollCombiner.<T>last(),
+                    RerollHistory.keepLast((int) Math.min(maxRerolls + 1L, HISTORY_WINDOW)));
+            for (int roll = 0; roll < maxRerolls && !isAccepted(result.getValue()); roll++) {
+                result.reroll();
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other != null && other.getClass() == getClass()
+                    && condition.equals(((RerollUntil<?>) other).condition)
+                    && maxRerolls == ((RerollUntil<?>) other).maxRerolls;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(getClass(), condition, maxRerolls);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("reroll until accepted (max %d)", maxRerolls);
+        }
+    }
+
+    /**
+     * Policy rerolling once the first roll fulfilling a condition.
+     *
+     * @param <T> The value type of the die.
+     */
+    public static class RerollOnce<T> extends RerollUntil<T> {
+
+        /**
+         * Create a new reroll once policy.
+         *
+         * @param condition The condition of the rerolled values.
+         */
+        public RerollOnce(Predicate<? super T> condition) {
+            super(condition, 1);
+        }
+
+        /**
+         * Test whether a value is accepted.
+         *
+         * @param value The tested value.
+         * @return True, if and only if the value does not fulfil the condition of
+         *         the rerolled values.
+         */
+        @Override
+        protected boolean isAccepted(T value) {
+            return !super.isAccepted(value);
+        }
+
+        @Override
+        public String toString() {
+            return "reroll once";
+        }
+    }
+
+    /**
+     * Policy keeping the best or the worst of several rolls.
+     *
+     * @param <T> The value type of the die.
+     */
+    public static class KeepOf<T> implements RerollPolicy<T> {
+
+        /**
+         * The number of rolls.
+         */
+        private final int count;
+
+        /**
+         * The comparator of the values.
+         */
+        private final Comparator<? super T> comparator;
+
+        /**
+         * Is the best value kept.
+         */
+        private final boolean best;
+
+        /**
+         * Create a new keep policy.
+         *
+         * @param count      The number of rolls.
+         * @param comparator The comparator of the values.
+         * @param best       Is the best value kept instead of the worst.
+         * @throws IllegalArgumentException The count was not positive.
+         */
+        public KeepOf(int count, Comparator<? super T> comparator, boolean best) throws IllegalArgumentException {
+            if (count <= 0) {
+                throw new IllegalArgumentException("The number of rolls must be positive");
+            }
+            this.count = count;
+            this.comparator = Objects.requireNonNull(comparator);
+            this.best = best;
+        }
+
+        /**
+         * Get the combiner of the rolls.
+         *
+         * @return The combiner keeping the best or the worst roll.
+         */
+        public RerollCombiner<T> getCombiner() {
+            return best ? RerollCombiner.bestOf(comparator) : RerollCombiner.worstOf(comparator);
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * The distribution is folded roll by roll with the combiner of the rolls,
+         * so values tied in the comparator are kept as the rerolled result keeps
+         * them.
+         */
+        @Override
+        public ExactDistribution<T> apply(ExactDistribution<T> distribution) {
+            RerollCombiner<T> combiner = getCombiner();
+            ExactDistribution<T> result = distribution;
+            for (int roll = 1; roll < count; roll++) {
+                result = result.combine(distribution, combiner);
+            }
+            return result;
+        }
+
+        @Override
+        public RerolledDieResult<T> roll(Die<? extends T> die) {
+            RerolledDieResult<T> result = new RerolledDieResult<>(die, getCombiner(),
+                    RerollHistory.keepLast(Math.min(count, HISTORY_WINDOW)));
+            for (int roll = 1; roll < count; roll++) {
+                result.reroll();
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof KeepOf<?> policy && count == policy.count && best == policy.best
+                    && comparator.equals(policy.comparator);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(count, comparator, best);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("keep %s of %d", best ? "best" : "worst", count);
+        }
+    }
+}
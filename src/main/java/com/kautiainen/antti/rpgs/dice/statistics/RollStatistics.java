@@ -0,0 +1,487 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.NoSuchElementException;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntConsumer;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collector;
+
+import com.kautiainen.antti.rpgs.dice.model.DieResult;
+
+/**
+ * Roll statistics is a constant memory accumulator of integer roll values.
+ *
+ * The statistics keeps a dense per-face histogram of the accepted values, and
+ * derives the count, mean, variance, minimum, maximum, and quantiles from it.
+ * The memory does not depend on the number of accepted values, but only on
+ * the range of the faces. As the histogram counts are simply added together,
+ * merging statistics is exact, associative and commutative.
+ *
+ * The statistics is not thread safe. Use
+ * {@link ConcurrentRollStatistics} for thread-local accumulation, or the
+ * {@link #collector()} with parallel streams.
+ */
+public class RollStatistics implements IntConsumer {
+
+    /**
+     * The maximal range of the faces the histogram may cover.
+     */
+    public static final int MAX_RANGE = 1 << 20;
+
+    /**
+     * The initial capacity of the histogram.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The histogram of the accepted values. The index 0 represents the value
+     * {@link #offset}.
+     */
+    private long[] histogram = new long[0];
+
+    /**
+     * The value of the first histogram bucket.
+     */
+    private int offset = 0;
+
+    /**
+     * The number of accepted values.
+     */
+    private long count = 0;
+
+    /**
+     * The smallest accepted value.
+     */
+    private int min = Integer.MAX_VALUE;
+
+    /**
+     * The largest accepted value.
+     */
+    private int max = Integer.MIN_VALUE;
+
+    /**
+     * Create a new empty statistics.
+     */
+    public RollStatistics() {
+    }
+
+    /**
+     * Create a copy of statistics.
+     *
+     * @param source The copied statistics.
+     */
+    public RollStatistics(RollStatistics source) {
+        this.histogram = source.histogram.clone();
+        this.offset = source.offset;
+        this.count = source.count;
+        this.min = source.min;
+        this.max = source.max;
+    }
+
+    /**
+     * Ensure the histogram covers the given range of values.
+     *
+     * @param low  The smallest value.
+     * @param high The largest value.
+     * @throws IllegalArgumentException The range of the values exceeds
+     *                                  {@link #MAX_RANGE}.
+     */
+    private void ensureRange(int low, int high) throws IllegalArgumentException {
+        if (histogram.length > 0 && low >= offset && (long) high - offset < histogram.length) {
+            return;
+        }
+        long newLow = histogram.length == 0 ? low : Math.min(low, offset);
+        long newHigh = histogram.length == 0 ? high : Math.max(high, (long) offset + histogram.length - 1);
+        long range = newHigh - newLow + 1;
+        if (range > MAX_RANGE) {
+            throw new IllegalArgumentException("The range of the faces exceeds " + MAX_RANGE);
+        }
+        // Grow to at least double size to keep the amortized cost constant.
+        long capacity = Math.min(MAX_RANGE, Math.max(range, Math.max(INITIAL_CAPACITY, 2L * histogram.length)));
+        long extra = capacity - range;
+        if (histogram.length > 0) {
+            // Grow towards the direction of the new value.
+            if (low < offset) {
+                newLow = Math.max((long) Integer.MIN_VALUE, newLow - extra);
+            }
+        } else {
+            newLow = Math.max((long) Integer.MIN_VALUE, newLow - extra / 2);
+        }
+        long[] newHistogram = new long[(int) capacity];
+        if (histogram.length > 0) {
+            System.arraycopy(histogram, 0, newHistogram, (int) (offset - newLow), histogram.length);
+        }
+        histogram = newHistogram;
+        offset = (int) newLow;
+    }
+
+    /**
+     * Accept a roll value.
+     *
+     * @param value The accepted value.
+     * @throws IllegalArgumentException The range of the faces would exceed
+     *                                  {@link #MAX_RANGE}.
+     */
+    @Override
+    public void accept(int value) throws IllegalArgumentException {
+        long index = (long) value - offset;
+        if (index < 0 || index >= histogram.length) {
+            ensureRange(value, value);
+            index = (long) value - offset;
+        }
+        histogram[(int) index]++;
+        count++;
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * Accept a roll value multiple times.
+     *
+     * @param value The accepted value.
+     * @param times The number of times the value is accepted.
+     * @throws IllegalArgumentException The times was negative, or the range of
+     *                                  the faces would exceed {@link #MAX_RANGE}.
+     */
+    public void accept(int value, long times) throws IllegalArgumentException {
+        if (times < 0) {
+            throw new IllegalArgumentException("Negative times");
+        } else if (times == 0) {
+            return;
+        }
+        ensureRange(value, value);
+        histogram[value - offset] += times;
+        count += times;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Accept all values of an array.
+     *
+     * @param values The accepted values.
+     */
+    public void acceptAll(int[] values) {
+        for (int value : values) {
+            accept(value);
+        }
+    }
+
+    /**
+     * Accept a numeric roll value.
+     *
+     * @param value The accepted value.
+     * @throws NullPointerException The value was undefined.
+     */
+    public void acceptValue(Number value) throws NullPointerException {
+        accept(value.intValue());
+    }
+
+    /**
+     * Combine other statistics into this statistics.
+     *
+     * @param other The combined statistics.
+     * @return This statistics.
+     */
+    public RollStatistics combine(RollStatistics other) {
+        if (other == this) {
+            other = new RollStatistics(other);
+        }
+        if (other.count == 0) {
+            return this;
+        }
+        ensureRange(other.min, other.max);
+        for (int value = other.min, end = other.max; value <= end; value++) {
+            histogram[value - offset] += other.histogram[value - other.offset];
+            if (value == Integer.MAX_VALUE) {
+                break;
+            }
+        }
+        count += other.count;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        return this;
+    }
+
+    /**
+     * Clear the statistics.
+     */
+    public void clear() {
+        Arrays.fill(histogram, 0L);
+        count = 0;
+        min = Integer.MAX_VALUE;
+        max = Integer.MIN_VALUE;
+    }
+
+    /**
+     * Get the number of accepted values.
+     *
+     * @return The number of accepted values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Is the statistics empty.
+     *
+     * @return True, if and only if no value has been accepted.
+     */
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Get the smallest accepted value.
+     *
+     * @return The smallest accepted value.
+     * @throws NoSuchElementException The statistics is empty.
+     */
+    public int getMin() throws NoSuchElementException {
+        checkNotEmpty();
+        return min;
+    }
+
+    /**
+     * Get the largest accepted value.
+     *
+     * @return The largest accepted value.
+     * @throws NoSuchElementException The statistics is empty.
+     */
+    public int getMax() throws NoSuchElementException {
+        checkNotEmpty();
+        return max;
+    }
+
+    /**
+     * Get the sum of accepted values.
+     *
+     * @return The sum of the accepted values.
+     */
+    public double getSum() {
+        double result = 0.0;
+        for (int i = min - offset, end = max - offset; count > 0 && i <= end; i++) {
+            result += (double) histogram[i] * ((long) offset + i);
+        }
+        return result;
+    }
+
+    /**
+     * Get the mean of the accepted values.
+     *
+     * @return The mean of the accepted values, or NaN for empty statistics.
+     */
+    public double getMean() {
+        return count == 0 ? Double.NaN : getSum() / count;
+    }
+
+    /**
+     * Get the population variance of the accepted values.
+     *
+     * @return The population variance, or NaN for empty statistics.
+     */
+    public double getVariance() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        double mean = getMean();
+        double result = 0.0;
+        for (int i = min - offset, end = max - offset; i <= end; i++) {
+            if (histogram[i] != 0) {
+                double delta = ((long) offset + i) - mean;
+                result += histogram[i] * delta * delta;
+            }
+        }
+        return result / count;
+    }
+
+    /**
+     * Get the population standard deviation of the accepted values.
+     *
+     * @return The standard deviation, or NaN for empty statistics.
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * Get the number of times a face has been accepted.
+     *
+     * @param face The face value.
+     * @return The number of times the face was accepted.
+     */
+    public long getFrequency(int face) {
+        long index = (long) face - offset;
+        return (index < 0 || index >= histogram.length) ? 0L : histogram[(int) index];
+    }
+
+    /**
+     * Get the histogram of the accepted faces.
+     *
+     * @return The unmodifiable sorted map from faces to their non-zero
+     *         frequencies.
+     */
+    public SortedMap<Integer, Long> getHistogram() {
+        SortedMap<Integer, Long> result = new TreeMap<>();
+        for (int i = min - offset, end = max - offset; count > 0 && i <= end; i++) {
+            if (histogram[i] != 0) {
+                result.put(offset + i, histogram[i]);
+            }
+        }
+        return Collections.unmodifiableSortedMap(result);
+    }
+
+    /**
+     * Get a quantile of the accepted values.
+     *
+     * @param quantile The quantile between 0 and 1.
+     * @return The smallest accepted value whose cumulative frequency is at least
+     *         the given quantile of the count.
+     * @throws IllegalArgumentException The quantile was not between 0 and 1.
+     * @throws NoSuchElementException   The statistics is empty.
+     */
+    public int getQuantile(double quantile) throws IllegalArgumentException, NoSuchElementException {
+        if (!(quantile >= 0.0 && quantile <= 1.0)) {
+            throw new IllegalArgumentException("Invalid quantile");
+        }
+        checkNotEmpty();
+        long target = Math.max(1L, (long) Math.ceil(quantile * count));
+        long cumulative = 0;
+        for (int i = min - offset, end = max - offset; i <= end; i++) {
+            cumulative += histogram[i];
+            if (cumulative >= target) {
+                return offset + i;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Get the median of the accepted values.
+     *
+     * @return The median of the accepted values.
+     * @throws NoSuchElementException The statistics is empty.
+     */
+    public int getMedian() throws NoSuchElementException {
+        return getQuantile(0.5);
+    }
+
+    /**
+     * Check the statistics is not empty.
+     *
+     * @throws NoSuchElementException The statistics is empty.
+     */
+    private void checkNotEmpty() throws NoSuchElementException {
+        if (count == 0) {
+            throw new NoSuchElementException("Empty statistics");
+        }
+    }
+
+    /**
+     * Write the statistics in a compact binary form.
+     *
+     * The form consists of the count, and for non-empty statistics the minimum,
+     * the maximum, and the frequencies of the faces from the minimum to the
+     * maximum.
+     *
+     * @param out The output.
+     * @throws IOException The writing failed.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(count);
+        if (count > 0) {
+            out.writeInt(min);
+            out.writeInt(max);
+            for (int i = min - offset, end = max - offset; i <= end; i++) {
+                out.writeLong(histogram[i]);
+            }
+        }
+    }
+
+    /**
+     * Read statistics written by {@link #write(DataOutput)}.
+     *
+     * @param in The input.
+     * @return The read statistics.
+     * @throws IOException The reading failed, or the input was invalid.
+     */
+    public static RollStatistics read(DataInput in) throws IOException {
+        RollStatistics result = new RollStatistics();
+        long count = in.readLong();
+        if (count < 0) {
+            throw new IOException("Invalid statistics count");
+        } else if (count > 0) {
+            int min = in.readInt();
+            int max = in.readInt();
+            if (min > max || (long) max - min >= MAX_RANGE) {
+                throw new IOException("Invalid statistics range");
+            }
+            for (long value = min; value <= max; value++) {
+                long frequency = in.readLong();
+                if (frequency < 0) {
+                    throw new IOException("Invalid statistics frequency");
+                }
+                result.accept((int) value, frequency);
+            }
+            if (result.count != count) {
+                throw new IOException("Invalid statistics count");
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        if (count == 0) {
+            return "RollStatistics[count=0]";
+        }
+        return String.format("RollStatistics[count=%d, min=%d, max=%d, mean=%f, variance=%f]", count, min, max,
+                getMean(), getVariance());
+    }
+
+    /**
+     * Create a collector of numeric values.
+     *
+     * The collector supports parallel streams, and may be used as the combiner of
+     * a {@link com.kautiainen.antti.rpgs.dice.model.CombinedDie}.
+     *
+     * @return The collector collecting the values into statistics.
+     */
+    public static Collector<Number, RollStatistics, RollStatistics> collector() {
+        return Collector.of(RollStatistics::new, RollStatistics::acceptValue, RollStatistics::combine,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Create a collector of values converted to integers.
+     *
+     * @param <T>    The type of the collected values.
+     * @param mapper The function converting values to integers.
+     * @return The collector collecting the values into statistics.
+     */
+    public static <T> Collector<T, RollStatistics, RollStatistics> collector(ToIntFunction<? super T> mapper) {
+        return Collector.of(RollStatistics::new, (RollStatistics stats, T value) -> stats.accept(mapper.applyAsInt(value)),
+                RollStatistics::combine,
+                Collector.Characteristics.IDENTITY_FINISH, Collector.Characteristics.UNORDERED);
+    }
+
+    /**
+     * Create a collector of die results with numeric values, such as the members
+     * of a {@link com.kautiainen.antti.rpgs.dice.model.RollResult}.
+     *
+     * @return The collector collecting the values of the die results.
+     */
+    public static Collector<DieResult<? extends Number>, RollStatistics, RollStatistics> resultCollector() {
+        return collector((DieResult<? extends Number> result) -> result.getValue().intValue());
+    }
+}
@@ -0,0 +1,168 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+/**
+ * Statistical functions used by the statistical tests of the dice.
+ */
+public final class StatisticalFunctions {
+
+    /**
+     * The relative precision of the iterative approximations.
+     */
+    private static final double EPSILON = 1e-15;
+
+    /**
+     * The smallest positive value used to avoid division by zero.
+     */
+    private static final double TINY = 1e-300;
+
+    /**
+     * The maximal number of iterations of the approximations.
+     */
+    private static final int MAX_ITERATIONS = 10_000;
+
+    /**
+     * The Lanczos approximation coefficients with g = 7.
+     */
+    private static final double[] LANCZOS = { 0.99999999999980993, 676.5203681218851, -1259.1392167224028,
+            771.32342877765313, -176.61502916214059, 12.507343278686905, -0.13857109526572012,
+            9.9843695780195716e-6, 1.5056327351493116e-7 };
+
+    /**
+     * The statistical functions is an utility class.
+     */
+    private StatisticalFunctions() {
+    }
+
+    /**
+     * Get the natural logarithm of the gamma function.
+     *
+     * @param x The positive argument.
+     * @return The logarithm of the gamma function of the argument.
+     * @throws IllegalArgumentException The argument was not positive.
+     */
+    public static double logGamma(double x) throws IllegalArgumentException {
+        if (!(x > 0)) {
+            throw new IllegalArgumentException("Gamma function argument must be positive");
+        }
+        if (x < 0.5) {
+            // Reflection formula.
+            return Math.log(Math.PI / Math.abs(Math.sin(Math.PI * x))) - logGamma(1 - x);
+        }
+        x -= 1;
+        double sum = LANCZOS[0];
+        for (int i = 1; i < LANCZOS.length; i++) {
+            sum += LANCZOS[i] / (x + i);
+        }
+        double t = x + 7.5;
+        return 0.5 * Math.log(2 * Math.PI) + (x + 0.5) * Math.log(t) - t + Math.log(sum);
+    }
+
+    /**
+     * Get the regularized upper incomplete gamma function Q(a, x).
+     *
+     * @param a The positive shape parameter.
+     * @param x The non-negative argument.
+     * @return The value of the regularized upper incomplete gamma function.
+     * @throws IllegalArgumentException The shape was not positive, or the
+     *                                  argument was negative.
+     */
+    public static double regularizedGammaQ(double a, double x) throws IllegalArgumentException {
+        if (!(a > 0) || !(x >= 0)) {
+            throw new IllegalArgumentException("Invalid incomplete gamma arguments");
+        }
+        if (x == 0) {
+            return 1.0;
+        } else if (x < a + 1) {
+            return Math.max(0.0, 1.0 - lowerGammaSeries(a, x));
+        } else {
+            return upperGammaFraction(a, x);
+        }
+    }
+
+    /**
+     * Get the regularized lower incomplete gamma function with series expansion.
+     *
+     * @param a The shape parameter.
+     * @param x The argument.
+     * @return The regularized lower incomplete gamma function P(a, x).
+     */
+    private static double lowerGammaSeries(double a, double x) {
+        double term = 1.0 / a;
+        double sum = term;
+        double ap = a;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            ap += 1;
+            term *= x / ap;
+            sum += term;
+            if (Math.abs(term) < Math.abs(sum) * EPSILON) {
+                break;
+            }
+        }
+        return sum * Math.exp(-x + a * Math.log(x) - logGamma(a));
+    }
+
+    /**
+     * Get the regularized upper incomplete gamma function with continued fraction
+     * expansion.
+     *
+     * @param a The shape parameter.
+     * @param x The argument.
+     * @return The regularized upper incomplete gamma function Q(a, x).
+     */
+    private static double upperGammaFraction(double a, double x) {
+        double b = x + 1 - a;
+        double c = 1.0 / TINY;
+        double d = 1.0 / b;
+        double h = d;
+        for (int i = 1; i < MAX_ITERATIONS; i++) {
+            double an = -i * (i - a);
+            b += 2;
+            d = an * d + b;
+            if (Math.abs(d) < TINY) {
+                d = TINY;
+            }
+            c = b + an / c;
+            if (Math.abs(c) < TINY) {
+                c = TINY;
+            }
+            d = 1.0 / d;
+            double delta = d * c;
+            h *= delta;
+            if (Math.abs(delta - 1.0) < EPSILON) {
+                break;
+            }
+        }
+        return Math.exp(-x + a * Math.log(x) - logGamma(a)) * h;
+    }
+
+    /**
+     * Get the p-value of a chi-square statistic.
+     *
+     * @param statistic        The chi-square statistic.
+     * @param degreesOfFreedom The degrees of freedom.
+     * @return The probability of the chi-square statistic being at least the
+     *         given statistic.
+     * @throws IllegalArgumentException The degrees of freedom was not positive.
+     */
+    public static double chiSquarePValue(double statistic, double degreesOfFreedom)
+            throws IllegalArgumentException {
+        if (!(degreesOfFreedom > 0)) {
+            throw new IllegalArgumentException("Degrees of freedom must be positive");
+        }
+        return regularizedGammaQ(degreesOfFreedom / 2, Math.max(0.0, statistic) / 2);
+    }
+
+    /**
+     * Get the two-sided p-value of a standard normal statistic.
+     *
+     * @param z The standard normal statistic.
+     * @return The probability of the absolute value of a standard normal variable
+     *         being at least the absolute value of the statistic.
+     */
+    public static double normalTwoSidedPValue(double z) {
+        if (Double.isNaN(z)) {
+            return Double.NaN;
+        }
+        return regularizedGammaQ(0.5, z * z / 2);
+    }
+}
@@ -0,0 +1,191 @@
+package com.kautiainen.antti.rpgs.dice.event;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.DieResult;
+import com.kautiainen.antti.rpgs.dice.model.RollResult;
+
+public class RollEventPublisherTest {
+
+    /**
+     * A subscriber recording the received batches.
+     */
+    static class RecordingSubscriber implements Flow.Subscriber<List<RollEvent>> {
+
+        /**
+         * The initial request.
+         */
+        private final long initialRequest;
+
+        /**
+         * The received batches.
+         */
+        final List<List<RollEvent>> batches = new ArrayList<>();
+
+        /**
+         * The latch counted down on completion.
+         */
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        /**
+         * The subscription.
+         */
+        Flow.Subscription subscription;
+
+        /**
+         * The received error.
+         */
+        Throwable error;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+        }
+
+        @Override
+        public synchronized void onNext(List<RollEvent> item) {
+            batches.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        synchronized List<RollEvent> events() {
+            return batches.stream().flatMap(List::stream).collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    void testDelivery() throws InterruptedException {
+        RollEventPublisher publisher = new RollEventPublisher();
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        Die<Integer> die = publisher.observe(Die.of(6));
+        for (int i = 0; i < 100; i++) {
+            die.roll();
+        }
+        publisher.close();
+        assertTrue(subscriber.completed.await(5, TimeUnit.SECONDS));
+        List<RollEvent> events = subscriber.events();
+        assertEquals(100, events.size());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i, events.get(i).getSequence());
+            assertEquals(RollEvent.Type.ROLL, events.get(i).getType());
+        }
+        assertThrows(IllegalStateException.class, () -> publisher.publishRoll(die, 1));
+    }
+
+    @Test
+    void testRollingAfterClose() {
+        RollEventPublisher publisher = new RollEventPublisher(Runnable::run, 100, 100, BackpressurePolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        Die<Integer> die = publisher.observe(Die.of(6));
+        DieResult<Integer> result = publisher.observe(Die.of(6).getRerollableResult());
+        RollResult<Integer, Integer> roll = publisher.observe(RollResult.of(Arrays.asList(Die.of(6), Die.of(6)),
+                Collectors.summingInt(Integer::intValue), true));
+        die.roll();
+        publisher.close();
+        assertTrue(publisher.isClosed());
+        for (int i = 0; i < 10; i++) {
+            int value = die.roll();
+            assertTrue(value >= 1 && value <= 6);
+            int rerolled = result.reroll();
+            assertEquals(rerolled, result.getValue());
+            int combined = roll.reroll();
+            assertEquals(combined, roll.getValue());
+        }
+        assertEquals(Arrays.asList(RollEvent.Type.COMBINED, RollEvent.Type.ROLL),
+                subscriber.events().stream().map(RollEvent::getType).toList());
+        assertEquals(0, publisher.getDroppedCount());
+        RollEventPublisher observer = new RollEventPublisher();
+        observer.close();
+        assertEquals(2, observer.observe(RollResult.of(Arrays.asList(Die.of(1), Die.of(1)),
+                Collectors.summingInt(Integer::intValue), true)).getValue());
+    }
+
+    @Test
+    void testBatches() {
+        RollEventPublisher publisher = new RollEventPublisher(Runnable::run, 100, 4, BackpressurePolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        for (int i = 0; i < 10; i++) {
+            publisher.publishRoll(Die.of(6), i);
+        }
+        subscriber.subscription.request(2);
+        assertEquals(Arrays.asList(4, 4), subscriber.batches.stream().map(List::size).toList());
+        subscriber.subscription.request(5);
+        assertEquals(10, subscriber.events().size());
+    }
+
+    @Test
+    void testBackpressurePolicies() {
+        RollEventPublisher publisher = new RollEventPublisher(Runnable::run, 100, 100, BackpressurePolicy.DROP);
+        RecordingSubscriber dropping = new RecordingSubscriber(0);
+        RecordingSubscriber latest = new RecordingSubscriber(0);
+        publisher.subscribe(dropping, 3, BackpressurePolicy.DROP);
+        publisher.subscribe(latest, 3, BackpressurePolicy.LATEST);
+        for (int i = 0; i < 10; i++) {
+            publisher.publishRoll(Die.of(6), i);
+        }
+        assertEquals(14, publisher.getDroppedCount());
+        dropping.subscription.request(1);
+        latest.subscription.request(1);
+        assertEquals(Arrays.asList(0, 1, 2), dropping.events().stream().map(RollEvent::getValue).toList());
+        assertEquals(Arrays.asList(7, 8, 9), latest.events().stream().map(RollEvent::getValue).toList());
+    }
+
+    @Test
+    void testResults() {
+        RollEventPublisher publisher = new RollEventPublisher(Runnable::run, 100, 100, BackpressurePolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+        publisher.subscribe(subscriber);
+        DieResult<Integer> result = publisher.observe(Die.of(6).getRerollableResult());
+        result.reroll();
+        RollResult<Integer, Integer> roll = publisher.observe(RollResult.of(Arrays.asList(Die.of(6), Die.of(6)),
+                Collectors.summingInt(Integer::intValue), true));
+        roll.reroll();
+        List<RollEvent> events = subscriber.events();
+        assertEquals(Arrays.asList(RollEvent.Type.REROLL, RollEvent.Type.COMBINED, RollEvent.Type.COMBINED),
+                events.stream().map(RollEvent::getType).toList());
+        assertEquals(result.getValue(), events.get(0).getValue());
+        assertEquals(2, events.get(2).getMembers().size());
+    }
+
+    @Test
+    void testInvalidRequest() {
+        RollEventPublisher publisher = new RollEventPublisher(Runnable::run, 10, 10, BackpressurePolicy.DROP);
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        publisher.subscribe(subscriber);
+        subscriber.subscription.request(0);
+        assertTrue(subscriber.error instanceof IllegalArgumentException);
+        assertEquals(0, publisher.getSubscriberCount());
+    }
+}
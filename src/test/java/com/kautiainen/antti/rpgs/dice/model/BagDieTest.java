@@ -0,0 +1,87 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class BagDieTest {
+
+    /**
+     * The tokens of the tests.
+     */
+    public static final List<String> TOKENS = Arrays.asList("skull", "skull", "star", "moon", "sun");
+
+    @Test
+    void testDrawAll() {
+        BagDie<String> bag = new BagDie<>(TOKENS);
+        List<String> drawn = new ArrayList<>();
+        while (!bag.isEmpty()) {
+            drawn.add(bag.roll());
+        }
+        assertEquals(drawn, bag.getDrawn());
+        Collections.sort(drawn);
+        List<String> expected = new ArrayList<>(TOKENS);
+        Collections.sort(expected);
+        assertEquals(expected, drawn);
+        assertThrows(NoSuchElementException.class, () -> bag.roll());
+    }
+
+    @Test
+    void testReset() {
+        BagDie<String> bag = new BagDie<>(TOKENS);
+        List<String> drawn = bag.draw(3);
+        assertEquals(3, drawn.size());
+        assertEquals(2, bag.getRemaining());
+        assertEquals(2, bag.getContents().size());
+        assertThrows(NoSuchElementException.class, () -> bag.draw(3));
+        assertEquals(2, bag.getRemaining());
+        bag.reset();
+        assertEquals(TOKENS.size(), bag.getRemaining());
+        assertTrue(bag.getDrawn().isEmpty());
+        bag.draw(5);
+        bag.reshuffle();
+        assertEquals(TOKENS.size(), bag.getRemaining());
+    }
+
+    @Test
+    void testResults() {
+        BagDie<Integer> deck = new BagDie<>(IntStream.rangeClosed(1, 52).boxed().toList());
+        RollResult<Integer, List<Integer>> hand = deck.drawResult(5, Collectors.toList());
+        assertEquals(47, deck.getRemaining());
+        assertEquals(5, hand.getValue().stream().distinct().count());
+        DieResult<Integer> card = deck.getResult();
+        assertTrue(card.getValue() >= 1 && card.getValue() <= 52);
+        assertEquals(46, deck.getRemaining());
+    }
+
+    @Test
+    void testConcurrentDraws() throws InterruptedException {
+        BagDie<Integer> bag = BagDie.concurrent(IntStream.range(0, 40_000).boxed().toList());
+        List<List<Integer>> drawn = new ArrayList<>();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            List<Integer> own = new ArrayList<>();
+            drawn.add(own);
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    own.add(bag.draw());
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(bag.isEmpty());
+        assertEquals(40_000, drawn.stream().flatMap(List::stream).distinct().count());
+    }
+}
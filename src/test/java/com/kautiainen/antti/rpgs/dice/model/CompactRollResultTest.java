@@ -0,0 +1,85 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class CompactRollResultTest {
+
+    @Test
+    void testPool() {
+        IndexedDie<Integer> d6 = new SimpleDie<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+        CompactRollResult<Integer, Integer> result = CompactRollResult.of(d6, 10_000,
+                Collectors.summingInt(Integer::intValue), false);
+        assertEquals(10_000, result.size());
+        assertEquals(10_000, result.getMembers().size());
+        assertEquals(10_000, result.getDice().getDice().size());
+        int sum = result.getMembers().stream().mapToInt(DieResult::getValue).sum();
+        assertEquals(sum, result.getValue());
+        assertTrue(sum >= 10_000 && sum <= 60_000);
+        assertSame(d6, result.getMembers().get(9_999).getDie());
+        assertThrows(UnsupportedOperationException.class, () -> result.reroll());
+        assertThrows(UnsupportedOperationException.class, () -> result.getMembers().get(0).reroll());
+    }
+
+    @Test
+    void testMixedDice() {
+        IndexedDie<Integer> d4 = new SimpleDie<>(Arrays.asList(1, 2, 3, 4));
+        IndexedDie<Integer> fudge = new SimpleDie<>(Arrays.asList(-1, 0, 1));
+        List<IndexedDie<Integer>> dice = Arrays.asList(d4, fudge, d4, fudge);
+        CompactRollResult<Integer, List<Integer>> result = new CompactRollResult<>(dice, Collectors.toList(),
+                true, new SplittableRandom(1));
+        List<Integer> values = result.getValue();
+        for (int i = 0; i < dice.size(); i++) {
+            assertSame(dice.get(i), result.getDie(i));
+            assertTrue(dice.get(i).getSides().contains(values.get(i)));
+        }
+    }
+
+    @Test
+    void testReroll() {
+        IndexedDie<Integer> d6 = new SimpleDie<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+        CompactRollResult<Integer, Integer> result = CompactRollResult.of(d6, 1000,
+                Collectors.summingInt(Integer::intValue), true);
+        int[] before = new int[result.size()];
+        for (int i = 0; i < before.length; i++) {
+            before[i] = result.getValue(i);
+        }
+        result.reroll(0, 1);
+        for (int i = 2; i < before.length; i++) {
+            assertEquals(before[i], result.getValue(i));
+        }
+        int value = result.getValue();
+        assertEquals(value, result.rerollIf(side -> side > 6));
+        result.getMembers().get(5).reroll();
+        assertTrue(result.getValue(5) >= 1 && result.getValue(5) <= 6);
+        assertThrows(IndexOutOfBoundsException.class, () -> result.reroll(1000));
+        assertThrows(IndexOutOfBoundsException.class, () -> result.getValue(-1));
+    }
+
+    @Test
+    void testMemberRerollDoesNotCombine() {
+        IndexedDie<Integer> d6 = new SimpleDie<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+        AtomicInteger combinations = new AtomicInteger();
+        CompactRollResult<Integer, Integer> result = CompactRollResult.of(d6, 1000,
+                Collectors.collectingAndThen(Collectors.summingInt(Integer::intValue), sum -> {
+                    combinations.incrementAndGet();
+                    return sum;
+                }), true);
+        for (DieResult<Integer> member : result.getMembers()) {
+            int value = member.reroll();
+            assertEquals(value, member.getValue());
+        }
+        assertEquals(0, combinations.get());
+        result.getValue();
+        assertEquals(1, combinations.get());
+    }
+}
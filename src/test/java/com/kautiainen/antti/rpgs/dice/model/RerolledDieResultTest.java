@@ -0,0 +1,153 @@
+package com.kautiainen.antti.rpgs.dice.model;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+public class RerolledDieResultTest {
+
+    /**
+     * The rolls of the scripted die.
+     */
+    public static final List<Integer> ROLLS = Arrays.asList(3, 5, 1, 4, 6, 2);
+
+    /**
+     * Create a die returning the scripted rolls in order.
+     *
+     * @return The die rolling the values of {@link #ROLLS}.
+     */
+    private static Die<Integer> scriptedDie() {
+        Iterator<Integer> rolls = ROLLS.iterator();
+        return rolls::next;
+    }
+
+    @Test
+    void testListCombiners() {
+        assertEquals(6, RerolledDieResult.<Integer>getBestOf().apply(ROLLS));
+        assertEquals(1, RerolledDieResult.<Integer>getWorstOf().apply(ROLLS));
+        assertEquals(6, RerolledDieResult.getWorstOf(Comparator.<Integer>reverseOrder()).apply(ROLLS));
+        assertEquals(2, RerolledDieResult.<Integer>getLastOf().apply(ROLLS));
+        assertNull(RerolledDieResult.<Integer>getBestOf().apply(List.of()));
+        assertEquals(6, IntRerollCombiner.max().asFunction().apply(ROLLS));
+        assertEquals(21, IntRerollCombiner.sum().applyAsInt(3, 5, 1, 4, 6, 2));
+    }
+
+    @Test
+    void testIncrementalReroll() {
+        RerolledDieResult<Integer> best = new RerolledDieResult<>(scriptedDie(), IntRerollCombiner.max());
+        RerolledDieResult<Integer> worst = new RerolledDieResult<>(scriptedDie(),
+                RerollCombiner.worstOf(Comparator.<Integer>naturalOrder()));
+        RerolledDieResult<Integer> last = new RerolledDieResult<>(scriptedDie());
+        int max = ROLLS.get(0), min = ROLLS.get(0);
+        assertEquals(max, best.getValue());
+        assertEquals(min, worst.getValue());
+        assertEquals(ROLLS.get(0), last.getValue());
+        for (int i = 1; i < ROLLS.size(); i++) {
+            max = Math.max(max, ROLLS.get(i));
+            min = Math.min(min, ROLLS.get(i));
+            assertEquals(max, best.reroll());
+            assertEquals(min, worst.reroll());
+            assertEquals(ROLLS.get(i), last.reroll());
+        }
+    }
+
+    @Test
+    void testLegacyIncrementalReroll() {
+        AtomicInteger comparisons = new AtomicInteger();
+        Comparator<Integer> counting = (Integer first, Integer second) -> {
+            comparisons.incrementAndGet();
+            return Integer.compare(first, second);
+        };
+        Die<Integer> bestDie = scriptedDie(), worstDie = scriptedDie();
+        RerolledDieResult<Integer> best = new RerolledDieResult<>(bestDie, RerolledDieResult.createList(bestDie.roll()),
+                RerolledDieResult.getBestOf(counting));
+        RerolledDieResult<Integer> worst = new RerolledDieResult<>(worstDie,
+                RerolledDieResult.createList(worstDie.roll()), RerolledDieResult.getWorstOf(counting));
+        for (int i = 1; i < ROLLS.size(); i++) {
+            comparisons.set(0);
+            best.reroll();
+            worst.reroll();
+            assertEquals(2, comparisons.get());
+        }
+        assertEquals(6, best.getValue());
+        assertEquals(1, worst.getValue());
+        assertEquals(ROLLS, best.getHistory().getValues());
+    }
+
+    @Test
+    void testPrimitiveReroll() {
+        IntRerollCombiner primitive = new IntRerollCombiner() {
+
+            @Override
+            public int applyAsInt(int current, int rolled) {
+                return current + rolled;
+            }
+
+            @Override
+            public Integer apply(Integer current, Integer rolled) {
+                throw new UnsupportedOperationException("Boxed combination");
+            }
+        };
+        RerolledDieResult<Integer> sum = new RerolledDieResult<>(scriptedDie(), primitive);
+        for (int i = 1; i < ROLLS.size(); i++) {
+            sum.reroll();
+        }
+        assertEquals(21, sum.getValue());
+    }
+
+    @Test
+    void testBoundedHistory() {
+        RerolledDieResult<Integer> ring = new RerolledDieResult<>(scriptedDie(), IntRerollCombiner.max(),
+                RerollHistory.keepLast(3));
+        RerollHistory.Summary<Integer> summary = RerollHistory.intSummary();
+        RerolledDieResult<Integer> summarized = new RerolledDieResult<>(scriptedDie(), IntRerollCombiner.min(),
+                summary);
+        for (int i = 1; i < ROLLS.size(); i++) {
+            ring.reroll();
+            summarized.reroll();
+        }
+        assertEquals(6, ring.getValue());
+        assertEquals(ROLLS.subList(3, 6), ring.getHistory().getValues());
+        assertEquals(ROLLS.size(), ring.getHistory().getCount());
+        assertTrue(ring.getHistory().isBounded());
+        assertFalse(ring.getHistory().isComplete());
+
+        assertEquals(1, summarized.getValue());
+        assertEquals(List.of(), summary.getValues());
+        assertEquals(ROLLS.size(), summary.getCount());
+        assertEquals(1, summary.getMin());
+        assertEquals(6, summary.getMax());
+        assertEquals(21, summary.getSum());
+
+        Die<Integer> die = scriptedDie();
+        RerolledDieResult<Integer> all = new RerolledDieResult<>(die, RerolledDieResult.createList(die.roll()),
+                RerolledDieResult.<Integer>getBestOf());
+        List<Integer> view = all.getHistory().getValues();
+        List<Integer> snapshot = all.getHistory().getSnapshot();
+        all.reroll();
+        assertEquals(ROLLS.subList(0, 2), view);
+        assertEquals(ROLLS.subList(0, 1), snapshot);
+        assertTrue(all.getHistory().isComplete());
+        assertThrows(IllegalArgumentException.class, () -> RerollHistory.keepLast(0));
+    }
+
+    @Test
+    void testSetOwnHistory() {
+        RerolledDieResult<Integer> result = new RerolledDieResult<>(scriptedDie(), IntRerollCombiner.max());
+        result.reroll();
+        result.setValues(result.getHistory().getValues());
+        assertEquals(ROLLS.subList(0, 2), result.getHistory().getValues());
+        assertEquals(5, result.getValue());
+        assertEquals(5, result.reroll());
+        assertEquals(ROLLS.subList(0, 3), result.getHistory().getValues());
+    }
+}
@@ -0,0 +1,93 @@
+package com.kautiainen.antti.rpgs.dice.registry;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DiceRegistryTest {
+
+    @Test
+    void testDefaultRegistry() {
+        DiceRegistry registry = DiceRegistry.loadDefault();
+        RegisteredDie d6 = registry.get("d6");
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5, 6), d6.getSides());
+        assertEquals(Arrays.asList(-1, 0, 1), registry.get("F").getSides());
+        assertEquals(1.0 / 3, registry.get("fudge").getDistribution().getProbability(0), 1e-12);
+        assertEquals(100, registry.get("d100").getSideCount());
+        assertTrue(registry.getNames().contains("coin"));
+        assertFalse(registry.find("d7").isPresent());
+        assertThrows(NoSuchElementException.class, () -> registry.get("d7"));
+        SplittableRandom random = new SplittableRandom(3);
+        for (int i = 0; i < 100; i++) {
+            int value = d6.rollValue(random);
+            assertTrue(value >= 1 && value <= 6);
+        }
+    }
+
+    @Test
+    void testDefinitions() throws IOException {
+        DiceRegistry registry = DiceRegistry.parse(new StringReader("""
+                # Comment
+                minus = -3
+
+                loaded = 1, 6, 6
+                """));
+        assertEquals(2, registry.size());
+        assertEquals(Arrays.asList(-1, -2, -3), registry.get("minus").getSides());
+        assertEquals(2.0 / 3, registry.get("loaded").getDistribution().getProbability(6), 1e-12);
+        assertThrows(IllegalArgumentException.class, () -> DiceRegistry.parse(new StringReader("d = x")));
+        assertThrows(IllegalArgumentException.class, () -> DiceRegistry.parse(new StringReader("d6")));
+        assertThrows(IllegalArgumentException.class, () -> DiceRegistry.parse(new StringReader("a = 2\na = 3")));
+    }
+
+    @Test
+    void testSnapshot(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("dice.img");
+        DiceRegistry original = DiceRegistry.mapOrLoadDefault(file);
+        assertTrue(Files.isRegularFile(file));
+        assertEquals(original.getImageSize(), Files.size(file));
+
+        DiceRegistry mapped = DiceRegistry.map(file);
+        assertEquals(original.getNames(), mapped.getNames());
+        for (String name : original.getNames()) {
+            assertEquals(original.get(name).getSides(), mapped.get(name).getSides());
+            assertEquals(original.get(name).getDistribution(), mapped.get(name).getDistribution());
+        }
+        assertEquals(mapped.getNames(), DiceRegistry.mapOrLoadDefault(file).getNames());
+
+        Path invalid = directory.resolve("invalid.img");
+        Files.write(invalid, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 });
+        assertThrows(IOException.class, () -> DiceRegistry.map(invalid));
+        Files.write(invalid, Arrays.copyOf(Files.readAllBytes(file), 40));
+        assertThrows(IOException.class, () -> DiceRegistry.map(invalid));
+    }
+
+    @Test
+    void testStaleSnapshot(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("dice.img");
+        String original = "a = 6\n";
+        String changed = "a = 6\nb = 4\n";
+        DiceRegistry first = DiceRegistry.mapOrParse(file, original);
+        assertEquals(DiceRegistry.hash(original), first.getSourceHash());
+        assertEquals(DiceRegistry.hash(original), DiceRegistry.map(file).getSourceHash());
+        assertEquals(first.getNames(), DiceRegistry.mapOrParse(file, original).getNames());
+
+        DiceRegistry rebuilt = DiceRegistry.mapOrParse(file, changed);
+        assertEquals(Arrays.asList("a", "b"), List.copyOf(rebuilt.getNames()));
+        DiceRegistry mapped = DiceRegistry.map(file);
+        assertEquals(DiceRegistry.hash(changed), mapped.getSourceHash());
+        assertEquals(Arrays.asList(1, 2, 3, 4), mapped.get("b").getSides());
+    }
+}
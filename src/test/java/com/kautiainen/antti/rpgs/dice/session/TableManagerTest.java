@@ -0,0 +1,84 @@
+package com.kautiainen.antti.rpgs.dice.session;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.RerolledDieResult;
+
+public class TableManagerTest {
+
+    @Test
+    void testTables() {
+        TableManager manager = new TableManager();
+        GameTable table = manager.getTable("a");
+        assertSame(table, manager.getTable("a"));
+        assertEquals(1, manager.size());
+        assertTrue(manager.findTable("a").isPresent());
+        assertFalse(manager.findTable("b").isPresent());
+        assertTrue(manager.removeTable("a"));
+        assertEquals(0, manager.size());
+    }
+
+    @Test
+    void testDeterministicStreams() {
+        Die<Integer> d20 = Die.of(20);
+        List<Integer> first = new ArrayList<>();
+        List<Integer> second = new ArrayList<>();
+        GameTable tableA = new TableManager(new SplittableRandom(7), 10).getTable("t");
+        GameTable tableB = new TableManager(new SplittableRandom(7), 10).getTable("t");
+        for (int i = 0; i < 20; i++) {
+            first.add(tableA.roll(d20));
+            second.add(tableB.roll(d20));
+        }
+        assertEquals(first, second);
+    }
+
+    @Test
+    void testOpenResults() {
+        GameTable table = new TableManager().getTable("t");
+        long id = table.open(Die.of(Arrays.asList(1, 2, 3, 4, 5, 6)), RerolledDieResult.getBestOf());
+        assertTrue(table.getOpenResults().contains(id));
+        int best = (Integer) table.getValue(id);
+        for (int i = 0; i < 10; i++) {
+            int value = (Integer) table.reroll(id);
+            assertTrue(value >= best);
+            best = value;
+        }
+        assertEquals(11, table.getHistory().size());
+        assertTrue(table.getHistory().stream().allMatch(entry -> entry.getResultId() == id));
+        assertTrue(table.close(id));
+        assertThrows(NoSuchElementException.class, () -> table.reroll(id));
+    }
+
+    @Test
+    void testBoundedHistory() {
+        GameTable table = new TableManager(new SplittableRandom(), 5).getTable("t");
+        Die<Integer> d6 = Die.of(6);
+        for (int i = 0; i < 20; i++) {
+            table.roll(d6);
+        }
+        assertEquals(5, table.getHistory().size());
+    }
+
+    @Test
+    void testEviction() throws InterruptedException {
+        TableManager manager = new TableManager();
+        manager.getTable("idle");
+        Thread.sleep(20);
+        manager.getTable("active").roll(Die.of(6));
+        assertEquals(1, manager.evictIdle(Duration.ofMillis(10)));
+        assertEquals(Arrays.asList("active"), new ArrayList<>(manager.getTableIds()));
+    }
+}
@@ -0,0 +1,70 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.dice.statistics.RollStatistics;
+
+public class ShardedSimulationTest {
+
+    /**
+     * The specification of the tests.
+     */
+    private static final SimulationSpec SPEC = new SimulationSpec(Arrays.asList("6", "6", "F"),
+            SimulationSpec.Combination.SUM, 100_000, 12345L, 4096, SimulationSpec.DEFAULT_ALGORITHM);
+
+    @Test
+    void testSpecArguments() {
+        SimulationSpec parsed = SimulationSpec.fromArguments(SPEC.toArguments());
+        assertEquals(SPEC.toArguments(), parsed.toArguments());
+        assertEquals(25, SPEC.getUnitCount());
+        assertEquals(100_000 - 24 * 4096, SPEC.getUnitTrials(24));
+        assertThrows(IllegalArgumentException.class, () -> new SimulationSpec(Arrays.asList("x"),
+                SimulationSpec.Combination.SUM, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new SimulationSpec(Arrays.asList("6"),
+                SimulationSpec.Combination.SUM, 1, 1, 1, "L64X128MixRandom"));
+    }
+
+    @Test
+    void testShardIndependence() {
+        ShardedSimulation simulation = new ShardedSimulation(SPEC);
+        RollStatistics whole = simulation.run();
+        assertEquals(100_000, whole.getCount());
+        assertTrue(whole.getMin() >= 1 && whole.getMax() <= 13);
+        for (int shards : new int[] { 2, 3, 7, 40 }) {
+            RollStatistics merged = new RollStatistics();
+            for (long[] shard : simulation.getShards(shards)) {
+                merged.combine(simulation.runShard(shard[0], shard[1]));
+            }
+            assertEquals(whole.getHistogram(), merged.getHistogram());
+        }
+        SimulationSpec other = new SimulationSpec(SPEC.getDieNames(), SPEC.getCombination(), SPEC.getTrials(),
+                54321L, SPEC.getUnitSize(), SPEC.getAlgorithm());
+        assertNotEquals(whole.getHistogram(), new ShardedSimulation(other).run().getHistogram());
+    }
+
+    @Test
+    void testSerialization() throws IOException {
+        RollStatistics statistics = new ShardedSimulation(SPEC).runShard(0, 2);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        statistics.write(new DataOutputStream(bytes));
+        RollStatistics read = RollStatistics.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(statistics.getHistogram(), read.getHistogram());
+    }
+
+    @Test
+    void testForkedWorkers() throws IOException, InterruptedException {
+        ShardedSimulation simulation = new ShardedSimulation(SPEC);
+        assertEquals(simulation.run().getHistogram(), simulation.runForked(3).getHistogram());
+    }
+}
@@ -0,0 +1,102 @@
+package com.kautiainen.antti.rpgs.dice.simulation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.dice.model.CombinedDie;
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+import com.kautiainen.antti.rpgs.dice.model.SimpleDie;
+
+public class VarianceReducedSamplerTest {
+
+    /**
+     * The probability of rolling at least 17 with three six-sided dice.
+     */
+    private static final double HIGH_3D6 = 4.0 / 216;
+
+    /**
+     * Create a sampler of the sum of three six-sided dice.
+     *
+     * @return The sampler of 3d6.
+     */
+    private static VarianceReducedSampler<Integer, Integer> create3d6() {
+        List<Die<? extends Integer>> dice = Arrays.asList(Die.of(6), Die.of(6), Die.of(6));
+        return VarianceReducedSampler.of(new CombinedDie<>(dice, Collectors.summingInt(Integer::intValue)));
+    }
+
+    @Test
+    void testSobolSequence() {
+        SobolSequence sequence = new SobolSequence(2);
+        double[] point = new double[2];
+        double[][] expected = { { 0.0, 0.0 }, { 0.5, 0.5 }, { 0.75, 0.25 }, { 0.25, 0.75 } };
+        for (double[] expectedPoint : expected) {
+            sequence.next(point);
+            assertArrayEquals(expectedPoint, point, 0.0);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new SobolSequence(SobolSequence.MAX_DIMENSIONS + 1));
+    }
+
+    @Test
+    void testSobolStratification() {
+        // Every dyadic interval of length 1/64 receives exactly one of the first 64
+        // points in every dimension.
+        SobolSequence sequence = new SobolSequence(SobolSequence.MAX_DIMENSIONS);
+        double[] point = new double[SobolSequence.MAX_DIMENSIONS];
+        int[][] counts = new int[SobolSequence.MAX_DIMENSIONS][64];
+        for (int i = 0; i < 64; i++) {
+            sequence.next(point);
+            for (int dimension = 0; dimension < point.length; dimension++) {
+                counts[dimension][(int) (point[dimension] * 64)]++;
+            }
+        }
+        for (int[] dimension : counts) {
+            assertTrue(Arrays.stream(dimension).allMatch(count -> count == 1));
+        }
+    }
+
+    @Test
+    void testModes() {
+        VarianceReducedSampler<Integer, Integer> sampler = create3d6();
+        for (SamplingMode mode : SamplingMode.values()) {
+            Estimate estimate = sampler.estimateProbability(sum -> sum >= 17, 64_000, mode,
+                    new SplittableRandom(mode.ordinal()));
+            assertEquals(mode, estimate.getMode());
+            assertTrue(Math.abs(estimate.getValue() - HIGH_3D6) <= 5 * estimate.getStandardError() + 1e-12,
+                    estimate.toString());
+        }
+    }
+
+    @Test
+    void testStratifiedVarianceReduction() {
+        VarianceReducedSampler<Integer, Integer> sampler = create3d6();
+        Estimate plain = sampler.estimateProbability(sum -> sum >= 17, 10_000, SamplingMode.PLAIN,
+                new SplittableRandom(1));
+        Estimate stratified = sampler.estimateProbability(sum -> sum >= 17, 10_000, SamplingMode.STRATIFIED,
+                new SplittableRandom(1));
+        // All side combinations fit into the strata, so the estimate is exact.
+        assertEquals(HIGH_3D6, stratified.getValue(), 1e-12);
+        assertEquals(0.0, stratified.getStandardError(), 0.0);
+        assertTrue(plain.getStandardError() > 0.0);
+    }
+
+    @Test
+    void testExpectedValue() {
+        IndexedDie<Integer> d20 = new SimpleDie<>(Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+                16, 17, 18, 19, 20));
+        VarianceReducedSampler<Integer, Integer> sampler = VarianceReducedSampler.of(d20);
+        Estimate antithetic = sampler.estimate(Integer::doubleValue, 1_000, SamplingMode.ANTITHETIC,
+                new SplittableRandom());
+        // The mirrored sides of a linear function cancel the variance.
+        assertEquals(10.5, antithetic.getValue(), 1e-12);
+        assertEquals(0.0, antithetic.getStandardError(), 1e-12);
+    }
+}
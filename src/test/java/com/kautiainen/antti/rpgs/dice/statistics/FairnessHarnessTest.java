@@ -0,0 +1,108 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+import com.kautiainen.antti.rpgs.dice.model.SimpleDie;
+
+public class FairnessHarnessTest {
+
+    /**
+     * The number of rolls of the fairness profile tests.
+     */
+    public static final long FAIRNESS_ROLLS = Long.getLong("dice.fairness.rolls", 100_000_000L);
+
+    /**
+     * The seed of the random source of the fairness profile tests.
+     */
+    public static final long FAIRNESS_SEED = Long.getLong("dice.fairness.seed", 42L);
+
+    @Test
+    void testStatisticalFunctions() {
+        assertEquals(0.05, StatisticalFunctions.chiSquarePValue(3.841458820694124, 1), 1e-9);
+        assertEquals(0.05, StatisticalFunctions.chiSquarePValue(11.070497693516351, 5), 1e-9);
+        assertEquals(0.05, StatisticalFunctions.normalTwoSidedPValue(1.959963984540054), 1e-9);
+        assertEquals(1.0, StatisticalFunctions.normalTwoSidedPValue(0.0), 1e-12);
+        assertEquals(Math.log(120), StatisticalFunctions.logGamma(6), 1e-12);
+    }
+
+    @Test
+    void testFairDie() {
+        IndexedDie<Integer> die = new SimpleDie<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+        FairnessReport<Integer> report = FairnessHarness.of(die).withRandom(new SplittableRandom(42))
+                .test(1_000_000, 2, FairnessHarness.DEFAULT_SIGNIFICANCE);
+        assertTrue(report.isPassed(), report::toString);
+        assertEquals(1_000_000, report.getRolls());
+        assertEquals(6, report.getFaces().size());
+        assertEquals(5, report.getDegreesOfFreedom());
+    }
+
+    @Test
+    void testBiasedDie() {
+        Die<Integer> die = Die.of(Arrays.asList(1, 2, 3, 4, 5, 6, 6));
+        FairnessReport<Integer> report = FairnessHarness.of(die, Arrays.asList(1, 2, 3, 4, 5, 6)).test(100_000);
+        assertFalse(report.isPassed(), report::toString);
+        assertTrue(report.getChiSquarePValue() < 1e-6);
+    }
+
+    @Test
+    void testCorrelatedDie() {
+        AtomicInteger counter = new AtomicInteger();
+        // Cycles the faces, which is perfectly uniform but not random.
+        Die<Integer> die = () -> counter.getAndIncrement() % 6 + 1;
+        FairnessReport<Integer> report = FairnessHarness.of(die, Arrays.asList(1, 2, 3, 4, 5, 6))
+                .test(60_000, 1, FairnessHarness.DEFAULT_SIGNIFICANCE);
+        assertFalse(report.isPassed(), report::toString);
+        assertTrue(report.getChiSquarePValue() > 0.99);
+        assertTrue(report.getFaces().get(0).getRunsPValue() < 1e-6);
+    }
+
+    @Test
+    void testUnexpectedFace() {
+        Die<Integer> die = Die.of(Arrays.asList(1, 2, 3));
+        FairnessReport<Integer> report = FairnessHarness.of(die, Arrays.asList(1, 2)).test(1_000);
+        assertFalse(report.isPassed());
+        assertTrue(report.getUnexpected() > 0);
+    }
+
+    @Test
+    void testInvalidArguments() {
+        FairnessHarness<Integer> harness = FairnessHarness.of(Die.of(6), Arrays.asList(1, 2, 3, 4, 5, 6));
+        assertThrows(IllegalArgumentException.class, () -> harness.test(1));
+        assertThrows(IllegalArgumentException.class, () -> harness.test(100, 0, 0.01));
+        assertThrows(UnsupportedOperationException.class, () -> FairnessHarness.of(() -> 1, Arrays.asList(1))
+                .withRandom(new SplittableRandom()));
+    }
+
+    @Test
+    @Tag("fairness")
+    void testStandardDiceFairness() {
+        // The dice are rolled with split generators, as the default rolls share
+        // the random source of Math.random among the rolling threads.
+        SplittableRandom random = new SplittableRandom(FAIRNESS_SEED);
+        for (String name : Arrays.asList("F", "C", "suite", "4", "6", "8", "10", "12", "20", "100")) {
+            FairnessReport<Integer> report = FairnessHarness.of((IndexedDie<Integer>) Die.of(name))
+                    .withRandom(random.split()).test(FAIRNESS_ROLLS);
+            assertTrue(report.isPassed(), () -> "d" + name + ": " + report);
+        }
+    }
+
+    @Test
+    @Tag("fairness")
+    void testSplittableRandomFairness() {
+        IndexedDie<Integer> die = (IndexedDie<Integer>) Die.of(20);
+        FairnessReport<Integer> report = FairnessHarness.of(die).withRandom(new SplittableRandom(FAIRNESS_SEED))
+                .test(FAIRNESS_ROLLS);
+        assertTrue(report.isPassed(), report::toString);
+    }
+}
@@ -0,0 +1,130 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.dice.model.CombinedDie;
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.IndexedDie;
+import com.kautiainen.antti.rpgs.dice.model.RerolledDieResult;
+import com.kautiainen.antti.rpgs.dice.model.SimpleDie;
+
+public class RerollDistributionsTest {
+
+    /**
+     * The tolerance of the probabilities.
+     */
+    public static final double EPSILON = 1e-12;
+
+    /**
+     * The six-sided die of the tests.
+     */
+    private final IndexedDie<Integer> d6 = new SimpleDie<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+
+    @Test
+    void testRerollOnce() {
+        ExactDistribution<Integer> result = RerollDistributions.of(d6, RerollPolicy.rerollOnce(value -> value == 1));
+        assertEquals(1.0 / 36, result.getProbability(1), EPSILON);
+        for (int side = 2; side <= 6; side++) {
+            assertEquals(7.0 / 36, result.getProbability(side), EPSILON);
+        }
+    }
+
+    @Test
+    void testKeepBestAndWorst() {
+        ExactDistribution<Integer> best = RerollDistributions.of(d6, RerollPolicy.keepBest(2));
+        ExactDistribution<Integer> worst = RerollDistributions.of(d6, RerollPolicy.keepWorst(2));
+        for (int side = 1; side <= 6; side++) {
+            assertEquals((2 * side - 1) / 36.0, best.getProbability(side), EPSILON);
+            assertEquals((13 - 2 * side) / 36.0, worst.getProbability(side), EPSILON);
+        }
+        assertEquals(161.0 / 36, best.getExpectedValue(Integer::doubleValue), EPSILON);
+    }
+
+    @Test
+    void testRerollUntil() {
+        ExactDistribution<Integer> result = RerollDistributions.of(d6,
+                RerollPolicy.rerollUntil(value -> value >= 3, 5));
+        double rejected = Math.pow(1.0 / 3, 5);
+        assertEquals(rejected / 6, result.getProbability(1), EPSILON);
+        assertEquals((1 - rejected) / (1 - 1.0 / 3) / 6 + rejected / 6, result.getProbability(3), EPSILON);
+        assertEquals(1.0, result.getProbability(value -> true), EPSILON);
+    }
+
+    @Test
+    void testSideMultiplicities() {
+        IndexedDie<Integer> fate = new SimpleDie<>(Arrays.asList(-1, 0, 0, 1));
+        ExactDistribution<Integer> result = RerollDistributions.of(fate);
+        assertEquals(0.5, result.getProbability(0), EPSILON);
+        assertEquals(3, result.size());
+    }
+
+    @Test
+    void testCombinedDie() {
+        List<Die<Integer>> members = Collections.nCopies(3, d6);
+        CombinedDie<Integer, Integer> sum = new CombinedDie<>(members, Collectors.summingInt(Integer::intValue));
+        RerollPolicy<Integer> policy = RerollPolicy.keepBest(2);
+        ExactDistribution<Integer> enumerated = RerollDistributions.of(sum, policy);
+        ExactDistribution<Integer> convolved = RerollDistributions.ofSum(sum, policy);
+        for (Map.Entry<Integer, Double> entry : convolved.getProbabilities().entrySet()) {
+            assertEquals(entry.getValue(), enumerated.getProbability(entry.getKey()), EPSILON);
+        }
+        assertEquals(3 * 161.0 / 36, convolved.getExpectedValue(Integer::doubleValue), 1e-9);
+        assertSame(convolved, RerollDistributions.ofSum(sum, policy));
+
+        CombinedDie<Integer, Integer> unindexed = new CombinedDie<>(List.<Die<Integer>>of(() -> 1),
+                Collectors.summingInt(Integer::intValue));
+        assertThrows(IllegalArgumentException.class, () -> RerollDistributions.of(unindexed, policy));
+    }
+
+    @Test
+    void testPolicyRolls() {
+        RerollPolicy<Integer> policy = RerollPolicy.keepBest(3);
+        assertSame(RerollDistributions.of(d6, policy), RerollDistributions.of(d6, policy));
+        assertEquals(policy, RerollPolicy.keepBest(3));
+        for (int i = 0; i < 100; i++) {
+            RerolledDieResult<Integer> result = policy.roll(d6);
+            List<Integer> rolls = result.getHistory().getValues();
+            assertEquals(3, rolls.size());
+            assertEquals(Collections.max(rolls), result.getValue());
+
+            RerolledDieResult<Integer> until = RerollPolicy.<Integer>rerollUntil(value -> value >= 5, 2).roll(d6);
+            assertTrue(until.getValue() >= 5 || until.getHistory().getCount() == 3);
+        }
+    }
+
+    @Test
+    void testUnboundedRerolls() {
+        RerollPolicy<Integer> policy = RerollPolicy.rerollUntil(value -> value == 6, Integer.MAX_VALUE);
+        for (int i = 0; i < 100; i++) {
+            RerolledDieResult<Integer> result = policy.roll(d6);
+            assertEquals(6, result.getValue());
+            assertTrue(result.getHistory().getValues().size() <= RerollPolicy.HISTORY_WINDOW);
+        }
+        assertEquals(1.0, RerollDistributions.of(d6, policy).getProbability(6), 1e-9);
+    }
+
+    @Test
+    void testBoundedPolicyCache() {
+        IndexedDie<Integer> die = new SimpleDie<>(Arrays.asList(1, 2, 3, 4, 5, 6));
+        RerollPolicy<Integer> reused = RerollPolicy.rerollOnce(value -> value == 1);
+        ExactDistribution<Integer> distribution = RerollDistributions.of(die, reused);
+        for (int i = 0; i < 4 * RerollDistributions.MAX_CACHED_POLICIES; i++) {
+            // Every capturing lambda is a distinct condition, so the policies are
+            // not equal.
+            int rerolled = i % 6 + 1;
+            RerollDistributions.of(die, RerollPolicy.<Integer>rerollOnce(value -> value == rerolled));
+            assertSame(distribution, RerollDistributions.of(die, reused));
+        }
+        assertEquals(RerollDistributions.MAX_CACHED_POLICIES, RerollDistributions.getCachedPolicyCount(die));
+    }
+}
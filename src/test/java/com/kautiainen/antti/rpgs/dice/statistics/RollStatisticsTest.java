@@ -0,0 +1,113 @@
+package com.kautiainen.antti.rpgs.dice.statistics;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+import com.kautiainen.antti.rpgs.dice.model.CombinedDie;
+import com.kautiainen.antti.rpgs.dice.model.Die;
+import com.kautiainen.antti.rpgs.dice.model.RollResult;
+
+public class RollStatisticsTest {
+
+    @Test
+    void testAccept() {
+        RollStatistics instance = new RollStatistics();
+        instance.acceptAll(new int[] { 1, 2, 3, 4, 5, 6, 6 });
+        assertEquals(7, instance.getCount());
+        assertEquals(1, instance.getMin());
+        assertEquals(6, instance.getMax());
+        assertEquals(27.0 / 7, instance.getMean(), 1e-12);
+        assertEquals(2, instance.getFrequency(6));
+        assertEquals(0, instance.getFrequency(7));
+        assertEquals(4, instance.getMedian());
+        assertEquals(1, instance.getQuantile(0.0));
+        assertEquals(6, instance.getQuantile(1.0));
+    }
+
+    @Test
+    void testVariance() {
+        RollStatistics instance = new RollStatistics();
+        instance.acceptAll(new int[] { 2, 4, 4, 4, 5, 5, 7, 9 });
+        assertEquals(5.0, instance.getMean(), 1e-12);
+        assertEquals(4.0, instance.getVariance(), 1e-12);
+        assertEquals(2.0, instance.getStandardDeviation(), 1e-12);
+    }
+
+    @Test
+    void testGrowing() {
+        RollStatistics instance = new RollStatistics();
+        instance.accept(1000);
+        instance.accept(-1000);
+        instance.accept(0);
+        assertEquals(-1000, instance.getMin());
+        assertEquals(1000, instance.getMax());
+        assertEquals(3, instance.getHistogram().size());
+        assertThrows(IllegalArgumentException.class, () -> instance.accept(RollStatistics.MAX_RANGE));
+    }
+
+    @Test
+    void testCombine() {
+        RollStatistics head = new RollStatistics();
+        RollStatistics tail = new RollStatistics();
+        RollStatistics all = new RollStatistics();
+        for (int i = -50; i < 50; i++) {
+            (i < 0 ? head : tail).accept(i * 3);
+            all.accept(i * 3);
+        }
+        head.combine(tail);
+        assertEquals(all.getHistogram(), head.getHistogram());
+        assertEquals(all.getVariance(), head.getVariance(), 1e-9);
+    }
+
+    @Test
+    void testParallelCollector() {
+        RollStatistics sequential = IntStream.range(0, 100_000).map(i -> i % 6 + 1).collect(RollStatistics::new,
+                RollStatistics::accept, RollStatistics::combine);
+        RollStatistics parallel = IntStream.range(0, 100_000).parallel().map(i -> i % 6 + 1).boxed()
+                .collect(RollStatistics.collector());
+        assertEquals(sequential.getHistogram(), parallel.getHistogram());
+    }
+
+    @Test
+    void testCombinedDie() {
+        List<Die<? extends Integer>> dice = Arrays.asList(Die.of(6), Die.of(6), Die.of(6));
+        CombinedDie<Integer, RollStatistics> die = new CombinedDie<>(dice, RollStatistics.collector());
+        RollStatistics roll = die.roll();
+        assertEquals(3, roll.getCount());
+        assertTrue(roll.getMin() >= 1 && roll.getMax() <= 6);
+
+        RollResult<Integer, Integer> result = RollResult.of(dice,
+                Collectors.summingInt(Integer::intValue));
+        RollStatistics members = result.getMembers().stream().collect(RollStatistics.resultCollector());
+        assertEquals(3, members.getCount());
+        assertEquals(result.getValue().doubleValue(), members.getSum(), 0.0);
+    }
+
+    @Test
+    void testConcurrent() throws InterruptedException {
+        ConcurrentRollStatistics instance = new ConcurrentRollStatistics();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    instance.accept(i % 6 + 1);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        RollStatistics snapshot = instance.snapshot();
+        assertEquals(40_000, snapshot.getCount());
+        assertEquals(40_000, instance.reset().getCount());
+        assertEquals(0, instance.snapshot().getCount());
+    }
+}